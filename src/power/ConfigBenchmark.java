@@ -0,0 +1,147 @@
+package power;
+
+import java.util.HashMap;
+
+import power.helpers.RunningMean;
+
+/**
+ * Times the per-tick work which used to look its parameters up on every call
+ * against the same work reading the final fields of the SimulationConfig: a
+ * RunningMean.add, of which every agent makes three per tick, and the canTrade
+ * and simulateReliability getters read by Agent.execute and
+ * Reliability.isOperational.
+ *
+ * The lookups go through the parameter map of the headless engine, a hash
+ * lookup with a cast and an unboxing per call, which is the cheapest form of
+ * the old Parameters path; under Repast the lookup went through
+ * RunEnvironment and the Parameters of the run as well.
+ *
+ * Usage: ConfigBenchmark [parameters.xml] [agents=N] [name=value ...]
+ */
+public class ConfigBenchmark {
+
+	private static final int windowsPerAgent = 3;
+	private static final int rounds = 5;
+	private static final int operations = 5000000;
+
+	private static SimulationEngine engine;
+	private static double sink;
+
+	private static Object lookup(String name) {
+		return SimulationEngine.getCurrent().getParameter(name);
+	}
+
+	/**
+	 * The add of RunningMean as it was, looking the period and the window size
+	 * up on every use.
+	 */
+	private static class LookupRunningMean extends RunningMean {
+		@Override
+		public void add(double value) {
+			window.add(value);
+
+			periodicSumList[SmartGridBuilder.getTickCount() % (Integer) lookup("period")] += value;
+
+			if (window.size() > (Integer) lookup("period")) {
+				recentSum += value - window.get(window.size() - (Integer) lookup("period") - 1);
+			} else {
+				recentSum += value;
+			}
+
+			windowSum += value;
+
+			while (window.size() > (Integer) lookup("windowSize")) {
+				value = window.remove();
+				if (window.size() < (Integer) lookup("period")) {
+					recentSum -= value;
+				}
+
+				int period = (Integer) lookup("period");
+				periodicSumList[(period + (SmartGridBuilder.getTickCount() % period - window.size()) % period) % period] -= value;
+				windowSum -= value;
+			}
+		}
+	}
+
+	private static double timeAdd(RunningMean mean) {
+		long start = System.nanoTime();
+		for (int index = 0; index < operations; index++) {
+			mean.add(index & 15);
+		}
+		sink += mean.getWindowMean();
+		return (System.nanoTime() - start) / (double) operations;
+	}
+
+	private static double timeLookupGetters() {
+		long start = System.nanoTime();
+		int count = 0;
+		for (int index = 0; index < operations; index++) {
+			if ((Boolean) lookup("canTrade"))
+				count++;
+			if ((Boolean) lookup("simulateReliability"))
+				count++;
+		}
+		sink += count;
+		return (System.nanoTime() - start) / (double) operations;
+	}
+
+	private static double timeConfigGetters(SimulationConfig config) {
+		long start = System.nanoTime();
+		int count = 0;
+		for (int index = 0; index < operations; index++) {
+			if (config.getCanTrade())
+				count++;
+			if (config.getSimulateReliability())
+				count++;
+		}
+		sink += count;
+		return (System.nanoTime() - start) / (double) operations;
+	}
+
+	public static void main(String[] args) {
+		int first = 0;
+		String parametersFile = SimulationEngine.defaultParametersFile;
+		if (args.length > 0 && args[0].indexOf('=') < 0) {
+			parametersFile = args[0];
+			first = 1;
+		}
+
+		HashMap<String, Object> parameters = SimulationEngine.loadParameters(parametersFile);
+		int agents = 1000;
+		for (int index = first; index < args.length; index++) {
+			if (args[index].startsWith("agents=")) {
+				agents = Integer.parseInt(args[index].substring("agents=".length()));
+			} else {
+				SimulationEngine.overrideParameter(parameters, args[index]);
+			}
+		}
+
+		engine = new SimulationEngine(parameters);
+		SimulationInstance instance = new SimulationInstance(engine, SimulationRandom.create(0));
+		SimulationInstance.enter(instance);
+		SimulationConfig config = SimulationConfig.read();
+		instance.setConfig(config);
+
+		RunningMean lookupMean = new LookupRunningMean();
+		RunningMean configMean = new RunningMean();
+		double lookupAdd = 0;
+		double configAdd = 0;
+		double lookupGetters = 0;
+		double configGetters = 0;
+		// the first round warms the JIT up and is not counted
+		for (int round = 0; round <= rounds; round++) {
+			double[] times = { timeAdd(lookupMean), timeAdd(configMean), timeLookupGetters(), timeConfigGetters(config) };
+			if (round > 0) {
+				lookupAdd += times[0] / rounds;
+				configAdd += times[1] / rounds;
+				lookupGetters += times[2] / rounds;
+				configGetters += times[3] / rounds;
+			}
+		}
+
+		System.out.println("RunningMean.add: lookup " + lookupAdd + " ns, config " + configAdd + " ns");
+		System.out.println("canTrade and simulateReliability: lookup " + lookupGetters + " ns, config " + configGetters + " ns");
+		double perAgent = windowsPerAgent * (lookupAdd - configAdd) + (lookupGetters - configGetters);
+		System.out.println("Saving per tick for " + agents + " agents: " + perAgent * agents / 1e3 + " us (" + sink + ")");
+	}
+}
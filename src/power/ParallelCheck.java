@@ -0,0 +1,145 @@
+package power;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+import power.output.ColumnarTickReader;
+
+/**
+ * Checks that a run on the fork-join pool gives the same results as a serial
+ * one: both are run with the same seed, each writing its tick output, and the
+ * outputs are compared value by value. The pool is only used for populations
+ * of more than one chunk of agents, so the check fails unless the population
+ * spans several chunks; chunkSize=N splits a small scenario.
+ *
+ * Usage: ParallelCheck [parameters.xml] [threads=N] [chunkSize=N]
+ * [name=value ...], writing the outputs to tickOutputFile.serial and
+ * tickOutputFile.parallel, by default in the temporary directory.
+ */
+public class ParallelCheck {
+
+	private static String run(HashMap<String, Object> parameters, int parallelism, String fileName) {
+		HashMap<String, Object> runParameters = new HashMap<String, Object>(parameters);
+		runParameters.put("parallelism", parallelism);
+		runParameters.put("tickOutputFile", fileName);
+
+		SimulationEngine engine = new SimulationEngine(runParameters);
+		try {
+			engine.build();
+			int agentCount = SmartGridBuilder.getPhaseRegistry().getAgentCount();
+			int chunkSize = SmartGridBuilder.getPhaseRegistry().getChunkSize();
+			if (parallelism > 1 && agentCount <= chunkSize) {
+				System.err.println("The " + agentCount + " agents fit in one chunk of " + chunkSize + ", so the parallel run would be serial; lower chunkSize");
+				(new Exception()).printStackTrace();
+				System.exit(1);
+			}
+			int endTick = SmartGridBuilder.getEndSimulationTick();
+			long start = System.nanoTime();
+			engine.run(endTick);
+			return agentCount + " agents, " + (endTick + 1) + " ticks in " + (System.nanoTime() - start) / 1e6 + " ms";
+		} finally {
+			SimulationInstance.enter(null);
+		}
+	}
+
+	/**
+	 * @return null when the outputs hold the same values, or the first
+	 *         difference
+	 */
+	private static String compare(String serialFile, String parallelFile) throws IOException {
+		FileChannel serialChannel = new FileInputStream(new File(serialFile)).getChannel();
+		FileChannel parallelChannel = new FileInputStream(new File(parallelFile)).getChannel();
+		try {
+			ColumnarTickReader serial = new ColumnarTickReader(serialChannel);
+			ColumnarTickReader parallel = new ColumnarTickReader(parallelChannel);
+			String[] names = serial.getNames();
+
+			while (true) {
+				double[][] serialBlock = serial.readBlock();
+				double[][] parallelBlock = parallel.readBlock();
+				if (serialBlock == null || parallelBlock == null) {
+					if (serialBlock != parallelBlock)
+						return "The outputs have a different number of ticks";
+					return null;
+				}
+				if (serialBlock[0].length != parallelBlock[0].length)
+					return "The outputs have a different number of ticks";
+
+				for (int row = 0; row < serialBlock[0].length; row++) {
+					for (int column = 0; column < names.length; column++) {
+						double expected = serialBlock[column][row];
+						double actual = parallelBlock[column][row];
+						if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual)) {
+							return "Tick " + (int) serialBlock[0][row] + ", " + names[column] + ": serial " + expected + ", parallel " + actual;
+						}
+					}
+				}
+			}
+		} finally {
+			serialChannel.close();
+			parallelChannel.close();
+		}
+	}
+
+	public static void main(String[] args) {
+		int first = 0;
+		String parametersFile = SimulationEngine.defaultParametersFile;
+		if (args.length > 0 && args[0].indexOf('=') < 0) {
+			parametersFile = args[0];
+			first = 1;
+		}
+
+		HashMap<String, Object> parameters = SimulationEngine.loadParameters(parametersFile);
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int index = first; index < args.length; index++) {
+			if (args[index].startsWith("threads=")) {
+				threads = Integer.parseInt(args[index].substring("threads=".length()));
+			} else {
+				SimulationEngine.overrideParameter(parameters, args[index]);
+			}
+		}
+
+		Integer endTick = (Integer) parameters.get("endSimulationTick");
+		if (endTick == null || endTick < 0) {
+			System.err.println("endSimulationTick must be set to compare runs");
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+		if (threads < 2) {
+			System.err.println("The parallel run needs at least two threads");
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+		if (parameters.get("randomSeed") == null) {
+			parameters.put("randomSeed", (int) System.currentTimeMillis());
+		}
+
+		String tickOutputFile = (String) parameters.get("tickOutputFile");
+		if (tickOutputFile == null) {
+			tickOutputFile = new File(System.getProperty("java.io.tmpdir"), "ParallelCheck").getPath();
+		}
+		String serialFile = tickOutputFile + ".serial";
+		String parallelFile = tickOutputFile + ".parallel";
+
+		System.out.println("Seed " + parameters.get("randomSeed"));
+		System.out.println("Serial: " + run(parameters, 1, serialFile));
+		System.out.println("Parallel on " + threads + " threads: " + run(parameters, threads, parallelFile));
+
+		String difference = null;
+		try {
+			difference = compare(serialFile, parallelFile);
+		} catch (IOException e) {
+			System.err.println("Unable to compare: " + serialFile + " and " + parallelFile);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+		if (difference != null) {
+			System.err.println(difference);
+			System.exit(1);
+		}
+		System.out.println("The serial and parallel outputs are identical");
+	}
+}
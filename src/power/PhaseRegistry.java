@@ -0,0 +1,384 @@
+package power;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import power.components.Agent;
+import power.components.Grid;
+import power.components.NeighborMarket;
+import power.components.Reliability;
+import power.components.ReliabilityScheduler;
+import power.components.Storage;
+import power.components.generators.AgentGenerator;
+import power.helpers.HelperFunctions;
+import power.models.RandomModel;
+import power.output.ColumnarTickWriter;
+
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.schedule.ScheduleParameters;
+
+/**
+ * Runs the per-tick methods of every component. Instead of one repeating
+ * schedule action per instance, the components register here and a single
+ * action per phase iterates over them, so the size of the Repast schedule
+ * does not depend on the population. The headless engine runs the same
+ * phases directly.
+ *
+ * With the neighbor market enabled, agents only post bids and offers during
+ * execution; the market is cleared afterwards, on the pool when there is one,
+ * and every agent then settles its trades and the rest of its load.
+ *
+ * With a fork-join pool the agent initialization and finalization, which only
+ * touch the state of each agent, are run in chunks on the pool.
+ */
+public class PhaseRegistry {
+
+	public enum Phase {
+		Start(ScheduleParameters.FIRST_PRIORITY),
+		GridInitialize(3),
+		GroupInitialize(2),
+		Initialize(1),
+		Execute(0),
+		Clear(-0.25),
+		Settle(-0.5),
+		Finalize(-1),
+		GroupFinalize(-2),
+		GridFinalize(-3);
+
+		private final double priority;
+
+		private Phase(double priority) {
+			this.priority = priority;
+		}
+
+		public double getPriority() {
+			return priority;
+		}
+	}
+
+	private static final Phase[] phaseList = Phase.values();
+	public static final int defaultChunkSize = 512;
+
+	private Grid grid;
+	private final ArrayList<AgentGenerator> agentGenerators = new ArrayList<AgentGenerator>();
+	private final ArrayList<Agent> agents = new ArrayList<Agent>();
+	// the index of every registered agent in agents, by agent id
+	private int[] positions = new int[0];
+	private boolean populationChanged;
+	private final ArrayList<RandomModel> randomModels = new ArrayList<RandomModel>();
+	private final ReliabilityScheduler reliabilityScheduler = new ReliabilityScheduler();
+	private final ArrayList<Storage> storages = new ArrayList<Storage>();
+
+	// rebuilt from agents when it changes
+	private Agent[] agentArray;
+	private ArrayList<Agent> executionOrder;
+
+	private ForkJoinPool pool;
+	private int chunkSize = defaultChunkSize;
+	private ColumnarTickWriter tickWriter;
+
+	// null unless neighbor trades are cleared by the market
+	private final NeighborMarket market;
+
+	public PhaseRegistry(boolean neighborMarket) {
+		if (neighborMarket) {
+			market = new NeighborMarket();
+		} else {
+			market = null;
+		}
+	}
+
+	/**
+	 * Adds one repeating action per phase to the Repast schedule.
+	 */
+	public void schedule() {
+		for (Phase phase : phaseList) {
+			ScheduleParameters scheduleParams = ScheduleParameters.createRepeating(0, 1, phase.getPriority());
+			RunEnvironment.getInstance().getCurrentSchedule().schedule(scheduleParams, new PhaseAction(this, phase), "execute");
+		}
+		RunEnvironment.getInstance().getCurrentSchedule().schedule(ScheduleParameters.createAtEnd(ScheduleParameters.LAST_PRIORITY), this, "close");
+	}
+
+	/**
+	 * Ends the run, flushing the tick output.
+	 */
+	public void close() {
+		if (tickWriter != null) {
+			tickWriter.close();
+		}
+	}
+
+	public void runTick() {
+		for (Phase phase : phaseList) {
+			run(phase);
+		}
+	}
+
+	public void run(Phase phase) {
+		switch (phase) {
+		case Start:
+			TickContext.publish(SmartGridBuilder.getTickCount(), SmartGridBuilder.getPeriod());
+			if (populationChanged) {
+				SmartGridBuilder.invalidateAdjacency();
+				populationChanged = false;
+			}
+			SimulationInstance.getCurrent().getRandom().getNoise().draw();
+			for (int index = 0; index < randomModels.size(); index++) {
+				randomModels.get(index).reset();
+			}
+			reliabilityScheduler.advance();
+			break;
+		case GridInitialize:
+			if (grid != null) {
+				grid.initialize();
+			}
+			break;
+		case GroupInitialize:
+			for (int index = 0; index < agentGenerators.size(); index++) {
+				agentGenerators.get(index).initialize();
+			}
+			break;
+		case Initialize:
+			for (int index = 0; index < storages.size(); index++) {
+				storages.get(index).initialize();
+			}
+			runAgentPhase(true);
+			break;
+		case Execute:
+			// shuffled, as Repast does for actions of equal priority
+			getAgentArray();
+			HelperFunctions.randomizeList(executionOrder);
+			for (int index = 0; index < executionOrder.size(); index++) {
+				executionOrder.get(index).execute();
+			}
+			break;
+		case Clear:
+			if (market != null) {
+				market.clear(pool, chunkSize);
+			}
+			break;
+		case Settle:
+			if (market != null) {
+				for (int index = 0; index < executionOrder.size(); index++) {
+					executionOrder.get(index).settle();
+				}
+				market.reset();
+			}
+			break;
+		case Finalize:
+			SmartGridBuilder.syncTradeFlows();
+			for (int index = 0; index < storages.size(); index++) {
+				storages.get(index).finalize();
+			}
+			runAgentPhase(false);
+			break;
+		case GroupFinalize:
+			for (int index = 0; index < agentGenerators.size(); index++) {
+				agentGenerators.get(index).finalize();
+			}
+			break;
+		case GridFinalize:
+			if (grid != null) {
+				grid.finalize();
+			}
+			if (tickWriter != null) {
+				tickWriter.append(TickContext.getCurrent().getTick());
+			}
+			break;
+		}
+	}
+
+	private void runAgentPhase(boolean initialize) {
+		Agent[] agentArray = getAgentArray();
+		if (pool != null && agentArray.length > chunkSize) {
+			pool.invoke(new AgentPhaseTask(SimulationInstance.getCurrent(), agentArray, initialize, chunkSize, 0, agentArray.length));
+		} else if (initialize) {
+			for (Agent agent : agentArray) {
+				agent.initialize();
+			}
+		} else {
+			for (Agent agent : agentArray) {
+				agent.finalize();
+			}
+		}
+	}
+
+	Agent[] getAgentArray() {
+		if (agentArray == null) {
+			agentArray = agents.toArray(new Agent[agents.size()]);
+			executionOrder = new ArrayList<Agent>(agents);
+		}
+		return agentArray;
+	}
+
+	/**
+	 * Runs Agent.initialize or Agent.finalize over a range of agents, splitting
+	 * the range until it fits in one chunk. The workers enter the simulation of
+	 * the agents while they run them.
+	 */
+	private static class AgentPhaseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final SimulationInstance instance;
+		private final Agent[] agents;
+		private final boolean initialize;
+		private final int chunkSize;
+		private final int from;
+		private final int to;
+
+		public AgentPhaseTask(SimulationInstance instance, Agent[] agents, boolean initialize, int chunkSize, int from, int to) {
+			this.instance = instance;
+			this.agents = agents;
+			this.initialize = initialize;
+			this.chunkSize = chunkSize;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > chunkSize) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new AgentPhaseTask(instance, agents, initialize, chunkSize, from, middle), new AgentPhaseTask(instance, agents, initialize, chunkSize, middle, to));
+				return;
+			}
+
+			SimulationInstance previous = SimulationInstance.enter(instance);
+			try {
+				if (initialize) {
+					for (int index = from; index < to; index++) {
+						agents[index].initialize();
+					}
+				} else {
+					for (int index = from; index < to; index++) {
+						agents[index].finalize();
+					}
+				}
+			} finally {
+				SimulationInstance.enter(previous);
+			}
+		}
+	}
+
+	/**
+	 * The schedule target of one phase.
+	 */
+	public static class PhaseAction {
+		private final PhaseRegistry registry;
+		private final Phase phase;
+
+		public PhaseAction(PhaseRegistry registry, Phase phase) {
+			this.registry = registry;
+			this.phase = phase;
+		}
+
+		public void execute() {
+			registry.run(phase);
+		}
+	}
+
+	/*
+	 * Registration
+	 */
+	public void register(Grid grid) {
+		this.grid = grid;
+	}
+
+	public void register(AgentGenerator agentGenerator) {
+		agentGenerators.add(agentGenerator);
+	}
+
+	public void register(Agent agent) {
+		int id = agent.getId();
+		if (id >= positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(2 * positions.length, id + 1));
+		}
+		positions[id] = agents.size();
+		agents.add(agent);
+		populationChanged();
+		if (market != null) {
+			market.register(agent);
+		}
+	}
+
+	/**
+	 * Moves the last agent into the place of the removed one.
+	 */
+	public void unregister(Agent agent) {
+		int position = positions[agent.getId()];
+		Agent last = agents.remove(agents.size() - 1);
+		if (last != agent) {
+			agents.set(position, last);
+			positions[last.getId()] = position;
+		}
+		populationChanged();
+		if (market != null) {
+			market.unregister(agent);
+		}
+	}
+
+	/**
+	 * The adjacency is rebuilt once at the start of the next tick, however many
+	 * agents come and go. Pending trades are copied to the edges first, while
+	 * the edges of removed agents still exist.
+	 */
+	private void populationChanged() {
+		agentArray = null;
+		if (!populationChanged) {
+			SmartGridBuilder.syncTradeFlows();
+			populationChanged = true;
+		}
+	}
+
+	/**
+	 * The noise of the model is seeded from the stream entered while it is
+	 * built, that of its agent or of the grid.
+	 *
+	 * @return the index of the noise of the model in every tick
+	 */
+	public int register(RandomModel randomModel) {
+		randomModels.add(randomModel);
+		SimulationRandom random = SimulationInstance.getCurrent().getRandom();
+		return random.getNoise().register(random.getGenerator().nextLong());
+	}
+
+	public void register(Reliability reliability) {
+		reliabilityScheduler.register(reliability);
+	}
+
+	public void register(Storage storage) {
+		storages.add(storage);
+	}
+
+	// end of registration
+
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the number of agents a worker runs at once; smaller populations are
+	 * run on the calling thread.
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setTickWriter(ColumnarTickWriter tickWriter) {
+		this.tickWriter = tickWriter;
+	}
+
+	public NeighborMarket getNeighborMarket() {
+		return market;
+	}
+
+	public int getAgentCount() {
+		return agents.size();
+	}
+}
@@ -0,0 +1,103 @@
+package power;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.w3c.dom.Element;
+
+import power.components.Grid;
+import power.components.generators.AgentGenerator;
+
+/**
+ * A scenario file compiled into the specs of its grid and agent generators.
+ * The specs hold no state of a run, so a scenario is compiled once and shared
+ * by every run reading the file, such as the points of a sweep. A file changed
+ * since it was compiled is compiled again. The file is streamed by a
+ * ScenarioReader, one top level element at a time.
+ */
+public final class Scenario {
+
+	private enum XmlNode {
+		GridModel,
+		AgentGenerator
+	}
+
+	private static final HashMap<String, Scenario> cache = new HashMap<String, Scenario>();
+
+	private final long lastModified;
+	private final Grid.Spec gridSpec;
+	private final List<AgentGenerator.Spec> agentGeneratorSpecs;
+
+	private Scenario(long lastModified, Grid.Spec gridSpec, List<AgentGenerator.Spec> agentGeneratorSpecs) {
+		this.lastModified = lastModified;
+		this.gridSpec = gridSpec;
+		this.agentGeneratorSpecs = agentGeneratorSpecs;
+	}
+
+	public static synchronized Scenario load(String fileName) {
+		long lastModified = new File(fileName).lastModified();
+		Scenario scenario = cache.get(fileName);
+		if (scenario == null || scenario.lastModified != lastModified) {
+			scenario = compile(fileName, lastModified);
+			cache.put(fileName, scenario);
+		}
+		return scenario;
+	}
+
+	/**
+	 * Streams the file, compiling every top level element as soon as it has
+	 * been read.
+	 */
+	private static Scenario compile(String fileName, long lastModified) {
+		Grid.Spec gridSpec = null;
+		ArrayList<AgentGenerator.Spec> agentGeneratorSpecs = new ArrayList<AgentGenerator.Spec>();
+		ScenarioReader reader = null;
+		try {
+			reader = new ScenarioReader(fileName);
+			Element element;
+			while ((element = reader.nextElement()) != null) {
+				if (XmlNode.GridModel.toString().equals(element.getNodeName())) {
+					if (gridSpec != null) {
+						System.err.println("More than one elemenet of type " + XmlNode.GridModel + " exists");
+						(new Exception()).printStackTrace();
+						System.exit(1);
+					}
+					gridSpec = Grid.Spec.compile(element);
+				} else if (XmlNode.AgentGenerator.toString().equals(element.getNodeName())) {
+					agentGeneratorSpecs.add(AgentGenerator.Spec.compile(element));
+				}
+			}
+		} catch (Exception e) { // poor error handling
+			System.err.println("Unable to open or parse: " + fileName);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		} finally {
+			if (reader != null) {
+				reader.close();
+			}
+		}
+
+		if (gridSpec == null) {
+			System.err.println("Could not find an element of type " + XmlNode.GridModel);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+		if (agentGeneratorSpecs.isEmpty()) {
+			System.err.println("Could not find at least one element of type " + XmlNode.AgentGenerator);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+		return new Scenario(lastModified, gridSpec, Collections.unmodifiableList(agentGeneratorSpecs));
+	}
+
+	public Grid.Spec getGridSpec() {
+		return gridSpec;
+	}
+
+	public List<AgentGenerator.Spec> getAgentGeneratorSpecs() {
+		return agentGeneratorSpecs;
+	}
+}
@@ -0,0 +1,180 @@
+package power;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import power.helpers.XmlTools;
+import power.models.cores.DataModel;
+import power.models.cores.Model;
+
+/**
+ * Streams the top level elements of a scenario file with StAX. Each element is
+ * handed out as a small DOM tree of its own for the specs to compile, and is
+ * garbage once compiled, so the whole document is never held in memory.
+ *
+ * The series of a DataModel are the bulk of large scenarios. They are parsed
+ * straight into a double[] attached to the element as DataModel.streamedData
+ * instead of becoming text or child nodes. Binary series are left to
+ * MappedDataModel.
+ */
+class ScenarioReader {
+
+	private final String fileName;
+	private final InputStream input;
+	private final XMLStreamReader reader;
+	private final DocumentBuilder builder;
+
+	// the values of the series being parsed
+	private double[] values = new double[1024];
+	private int size;
+	private final StringBuilder token = new StringBuilder();
+
+	public ScenarioReader(String fileName) throws IOException, XMLStreamException {
+		this.fileName = fileName;
+		this.input = new BufferedInputStream(new FileInputStream(fileName));
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		this.reader = factory.createXMLStreamReader(input);
+		try {
+			this.builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+
+		// the root element
+		reader.nextTag();
+	}
+
+	/**
+	 * @return the next child of the root element or null after the last one
+	 */
+	public Element nextElement() throws XMLStreamException {
+		int event = reader.nextTag();
+		if (event == XMLStreamConstants.END_ELEMENT)
+			return null;
+		// a document per element, so the user data of one is not kept alive by
+		// the next
+		return readElement(builder.newDocument());
+	}
+
+	public void close() {
+		try {
+			reader.close();
+			input.close();
+		} catch (Exception e) {
+			System.err.println("Unable to close: " + fileName);
+		}
+	}
+
+	/**
+	 * Reads the element at the cursor and its content, leaving the cursor on
+	 * its end tag.
+	 */
+	private Element readElement(Document document) throws XMLStreamException {
+		Element element = document.createElement(reader.getLocalName());
+		for (int index = 0; index < reader.getAttributeCount(); index++) {
+			element.setAttribute(reader.getAttributeLocalName(index), reader.getAttributeValue(index));
+		}
+
+		String format = element.getAttribute(XmlTools.XmlAttribute.format.toString());
+		if (Model.ModelType.DataModel.toString().equals(element.getAttribute(XmlTools.XmlAttribute.type.toString()))
+				&& !XmlTools.FormatType.binary.toString().equals(format)) {
+			if (XmlTools.FormatType.xml.toString().equals(format)) {
+				readDataElements();
+			} else {
+				readJsonArray();
+			}
+			element.setUserData(DataModel.streamedData, Arrays.copyOf(values, size), null);
+			return element;
+		}
+
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				element.appendChild(readElement(document));
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+				element.appendChild(document.createTextNode(reader.getText()));
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return element;
+			}
+		}
+	}
+
+	/**
+	 * Parses the value attributes of the Data children, skipping any other
+	 * content.
+	 */
+	private void readDataElements() throws XMLStreamException {
+		size = 0;
+		int depth = 0;
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (depth == 0 && reader.getLocalName().equals("Data")) {
+					add(reader.getAttributeValue(null, XmlTools.XmlAttribute.value.toString()));
+				}
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == 0)
+					return;
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Parses the numbers of a JSON array from the text of the element, a token
+	 * at a time, whichever way the text is split into events.
+	 */
+	private void readJsonArray() throws XMLStreamException {
+		size = 0;
+		token.setLength(0);
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+				char[] text = reader.getTextCharacters();
+				int end = reader.getTextStart() + reader.getTextLength();
+				for (int index = reader.getTextStart(); index < end; index++) {
+					char c = text[index];
+					if (c == ',' || c == '[' || c == ']' || Character.isWhitespace(c)) {
+						flushToken();
+					} else {
+						token.append(c);
+					}
+				}
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				throw new XMLStreamException("Unexpected element in the data of a DataModel: " + reader.getLocalName(), reader.getLocation());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				flushToken();
+				return;
+			}
+		}
+	}
+
+	private void flushToken() {
+		if (token.length() > 0) {
+			add(token.toString());
+			token.setLength(0);
+		}
+	}
+
+	private void add(String value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, 2 * size);
+		}
+		values[size++] = Double.parseDouble(value);
+	}
+}
@@ -0,0 +1,199 @@
+package power;
+
+import repast.simphony.engine.environment.RunEnvironment;
+
+/**
+ * The parameters of one run, read once when the model is built. Components
+ * which consult a parameter on every tick keep a reference to this or copy the
+ * values they need into final fields.
+ */
+public final class SimulationConfig {
+
+	private final String fileName;
+	private final String tickOutputFile;
+	private final Integer randomSeed;
+	private final Integer endSimulationTick;
+
+	private final int period;
+	private final int windowSize;
+	private final double historyValue;
+
+	private final boolean canTrade;
+	private final boolean neighborMarket;
+	private final boolean canSuspendLoad;
+	private final boolean simulateReliability;
+	private final boolean pauseOnBlackout;
+	private final boolean forceDumping;
+	private final boolean orderNeighbors;
+	private final boolean beGenerationScrooge;
+	private final double hourlyGridBuyBack;
+
+	private final Double resourceFactor;
+	private final Double generationFactor;
+	private final Double smartFraction;
+	private final Double suspendFactor;
+
+	// network
+	private final int minDegree;
+	private final int maxDegree;
+	private final int maxNumberOfRounds;
+	private final boolean isConnected;
+
+	/**
+	 * Reads the parameters of the headless engine if one is running and
+	 * otherwise those of the Repast run environment.
+	 */
+	public static SimulationConfig read() {
+		return new SimulationConfig();
+	}
+
+	private SimulationConfig() {
+		fileName = (String) getParameter("fileName");
+		tickOutputFile = (String) getParameter("tickOutputFile");
+		randomSeed = (Integer) getParameter("randomSeed");
+		endSimulationTick = (Integer) getParameter("endSimulationTick");
+
+		period = (Integer) getParameter("period");
+		windowSize = (Integer) getParameter("windowSize");
+		historyValue = (Double) getParameter("historyValue");
+
+		canTrade = (Boolean) getParameter("canTrade");
+		// optional, older parameter files do not have it
+		neighborMarket = Boolean.TRUE.equals(getParameter("neighborMarket"));
+		canSuspendLoad = (Boolean) getParameter("canSuspendLoad");
+		simulateReliability = (Boolean) getParameter("simulateReliability");
+		pauseOnBlackout = (Boolean) getParameter("pauseOnBlackout");
+		forceDumping = (Boolean) getParameter("forceDumping");
+		orderNeighbors = (Boolean) getParameter("orderNeighbors");
+		beGenerationScrooge = (Boolean) getParameter("beGenerationScrooge");
+		hourlyGridBuyBack = (Double) getParameter("hourlyGridBuyBack");
+
+		resourceFactor = (Double) getParameter("resourceFactor");
+		generationFactor = (Double) getParameter("generationFactor");
+		smartFraction = (Double) getParameter("smartFraction");
+		suspendFactor = (Double) getParameter("suspendFactor");
+
+		minDegree = (Integer) getParameter("minDegree");
+		maxDegree = (Integer) getParameter("maxDegree");
+		maxNumberOfRounds = (Integer) getParameter("maxNumberOfRounds");
+		isConnected = (Boolean) getParameter("isConnected");
+
+		if (period <= 0) {
+			System.err.println("The period must be positive: " + period);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private static Object getParameter(String name) {
+		SimulationEngine engine = SimulationEngine.getCurrent();
+		if (engine != null) {
+			return engine.getParameter(name);
+		}
+		return RunEnvironment.getInstance().getParameters().getValue(name);
+	}
+
+	/*
+	 * Getters
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * @return the file the ColumnarTickWriter writes to or null if disabled
+	 */
+	public String getTickOutputFile() {
+		return tickOutputFile;
+	}
+
+	public Integer getRandomSeed() {
+		return randomSeed;
+	}
+
+	public Integer getEndSimulationTick() {
+		return endSimulationTick;
+	}
+
+	public int getPeriod() {
+		return period;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public double getHistoryValue() {
+		return historyValue;
+	}
+
+	public boolean getCanTrade() {
+		return canTrade;
+	}
+
+	public boolean getNeighborMarket() {
+		return neighborMarket;
+	}
+
+	public boolean getCanSuspendLoad() {
+		return canSuspendLoad;
+	}
+
+	public boolean getSimulateReliability() {
+		return simulateReliability;
+	}
+
+	public boolean getPauseOnBlackout() {
+		return pauseOnBlackout;
+	}
+
+	public boolean getForceDumping() {
+		return forceDumping;
+	}
+
+	public boolean getOrderNeighbors() {
+		return orderNeighbors;
+	}
+
+	public boolean getBeGenerationScrooge() {
+		return beGenerationScrooge;
+	}
+
+	public double getHourlyGridBuyBack() {
+		return hourlyGridBuyBack;
+	}
+
+	public Double getResourceFactor() {
+		return resourceFactor;
+	}
+
+	public Double getGenerationFactor() {
+		return generationFactor;
+	}
+
+	public Double getSmartFraction() {
+		return smartFraction;
+	}
+
+	public Double getSuspendFactor() {
+		return suspendFactor;
+	}
+
+	public int getMinDegree() {
+		return minDegree;
+	}
+
+	public int getMaxDegree() {
+		return maxDegree;
+	}
+
+	public int getMaxNumberOfRounds() {
+		return maxNumberOfRounds;
+	}
+
+	public boolean getIsConnected() {
+		return isConnected;
+	}
+
+	// end of getters
+}
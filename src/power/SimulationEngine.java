@@ -0,0 +1,202 @@
+package power;
+
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import repast.simphony.context.DefaultContext;
+
+/**
+ * Drives a simulation without the Repast scheduler. Each tick runs the phases
+ * of the PhaseRegistry in the order of their Repast priorities: start (first
+ * priority), grid init (3), generator init (2), agent init (1), agent
+ * execution (0), market clearing (-0.25), settlement (-0.5), agent
+ * finalization (-1), generator finalization (-2) and grid finalization (-3).
+ *
+ * With parallelism greater than one the registry runs the agent
+ * initialization and finalization phases on a fork-join pool. The models of
+ * every agent are drawn serially beforehand by the generator initialization,
+ * so the results do not depend on it.
+ *
+ * Each engine owns a SimulationInstance with its own random streams, so
+ * engines on different threads do not interfere; SweepRunner runs many.
+ *
+ * Usage: SimulationEngine [parameters.xml] [name=value ...], where besides the
+ * model parameters "parallelism" sets the number of worker threads and
+ * "chunkSize" the number of agents each of them runs at once.
+ */
+public class SimulationEngine {
+
+	static final String defaultParametersFile = "power.rs/parameters.xml";
+	private static final String nullValue = "__NULL__";
+
+	private final HashMap<String, Object> parameters;
+
+	private SimulationInstance instance;
+	private PhaseRegistry registry;
+	private int tick;
+	private ForkJoinPool pool;
+
+	/**
+	 * @return the engine of the current SimulationInstance or null when it is
+	 *         run by Repast
+	 */
+	public static SimulationEngine getCurrent() {
+		SimulationInstance instance = SimulationInstance.getCurrent();
+		if (instance == null) {
+			return null;
+		}
+		return instance.getEngine();
+	}
+
+	public SimulationEngine(HashMap<String, Object> parameters) {
+		this.parameters = parameters;
+	}
+
+	public void build() {
+		if (getParameter("randomSeed") == null) {
+			parameters.put("randomSeed", (int) System.currentTimeMillis());
+		}
+		instance = new SimulationInstance(this, SimulationRandom.create((Integer) getParameter("randomSeed")));
+		SimulationInstance.enter(instance);
+
+		(new SmartGridBuilder()).build(new DefaultContext<Object>());
+		registry = SmartGridBuilder.getPhaseRegistry();
+
+		Integer parallelism = (Integer) getParameter("parallelism");
+		if (parallelism != null && parallelism > 1) {
+			pool = new ForkJoinPool(parallelism);
+			registry.setPool(pool);
+		}
+		Integer chunkSize = (Integer) getParameter("chunkSize");
+		if (chunkSize != null && chunkSize > 0) {
+			registry.setChunkSize(chunkSize);
+		}
+	}
+
+	public void run(int endTick) {
+		SimulationInstance previous = SimulationInstance.enter(instance);
+		try {
+			for (tick = 0; tick <= endTick; tick++) {
+				registry.runTick();
+			}
+		} finally {
+			registry.close();
+			if (pool != null) {
+				pool.shutdown();
+			}
+			SimulationInstance.enter(previous);
+		}
+	}
+
+	public int getTickCount() {
+		return tick;
+	}
+
+	public Object getParameter(String name) {
+		return parameters.get(name);
+	}
+
+	/*
+	 * Parameters
+	 */
+	public static HashMap<String, Object> loadParameters(String fileName) {
+		HashMap<String, Object> parameters = new HashMap<String, Object>();
+		Element root = null;
+		try {
+			DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			root = builder.parse(fileName).getDocumentElement();
+		} catch (Exception e) { // poor error handling
+			System.err.println("Unable to open or parse: " + fileName);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+
+		NodeList nodeList = root.getElementsByTagName("parameter");
+		for (int index = 0; index < nodeList.getLength(); index++) {
+			Node node = nodeList.item(index);
+			String name = node.getAttributes().getNamedItem("name").getNodeValue();
+			String type = node.getAttributes().getNamedItem("type").getNodeValue();
+			String value = node.getAttributes().getNamedItem("defaultValue").getNodeValue();
+			parameters.put(name, parseParameter(type, value));
+		}
+		return parameters;
+	}
+
+	private static Object parseParameter(String type, String value) {
+		if (value == null || nullValue.equals(value)) {
+			return null;
+		} else if (type.equals("int") || type.equals("java.lang.Integer")) {
+			return Integer.parseInt(value);
+		} else if (type.equals("double") || type.equals("java.lang.Double")) {
+			return Double.parseDouble(value);
+		} else if (type.equals("boolean") || type.equals("java.lang.Boolean")) {
+			return Boolean.parseBoolean(value);
+		} else {
+			return value;
+		}
+	}
+
+	static void overrideParameter(HashMap<String, Object> parameters, String assignment) {
+		int split = assignment.indexOf('=');
+		if (split <= 0) {
+			System.err.println("Expected name=value but found: " + assignment);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+		String name = assignment.substring(0, split);
+		String value = assignment.substring(split + 1);
+
+		Object previous = parameters.get(name);
+		if (previous instanceof Integer) {
+			parameters.put(name, Integer.parseInt(value));
+		} else if (previous instanceof Double) {
+			parameters.put(name, Double.parseDouble(value));
+		} else if (previous instanceof Boolean) {
+			parameters.put(name, Boolean.parseBoolean(value));
+		} else if (name.equals("randomSeed") || name.equals("chunkSize")) {
+			parameters.put(name, Integer.parseInt(value));
+		} else {
+			parameters.put(name, value);
+		}
+	}
+
+	// end of parameters
+
+	public static void main(String[] args) {
+		int first = 0;
+		String parametersFile = defaultParametersFile;
+		if (args.length > 0 && args[0].indexOf('=') < 0) {
+			parametersFile = args[0];
+			first = 1;
+		}
+
+		HashMap<String, Object> parameters = loadParameters(parametersFile);
+		// engine only options
+		parameters.put("parallelism", 1);
+		for (int index = first; index < args.length; index++) {
+			overrideParameter(parameters, args[index]);
+		}
+
+		SimulationEngine engine = new SimulationEngine(parameters);
+		engine.build();
+
+		int endTick = SmartGridBuilder.getEndSimulationTick();
+		if (endTick < 0) {
+			System.err.println("endSimulationTick must be set to run without the Repast scheduler");
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+
+		long start = System.nanoTime();
+		engine.run(endTick);
+		double elapsed = (System.nanoTime() - start) / 1e6;
+		System.out.println("Finished " + (endTick + 1) + " ticks in " + elapsed + " ms (" + elapsed / (endTick + 1) + " ms/tick)");
+	}
+}
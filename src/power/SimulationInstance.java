@@ -0,0 +1,230 @@
+package power;
+
+import java.util.HashMap;
+
+import power.components.BlankReliability;
+import power.components.Grid;
+import power.components.Storage;
+import power.components.generators.AgentGenerator;
+import power.networks.AdjacencySnapshot;
+import power.networks.TradeFlowOverlay;
+import power.tools.Amplify;
+
+import repast.simphony.context.Context;
+import repast.simphony.space.graph.Network;
+
+/**
+ * The state of one simulation: what SmartGridBuilder builds, the random
+ * streams and the counters the components share. Every thread running a
+ * simulation enters its instance, so several simulations can run side by side
+ * in one JVM. Threads which never entered one, such as those of the Repast
+ * GUI, see the instance of the latest Repast run.
+ */
+public final class SimulationInstance {
+
+	private static final ThreadLocal<SimulationInstance> current = new ThreadLocal<SimulationInstance>();
+	private static volatile SimulationInstance shared;
+
+	private final SimulationEngine engine;
+	private final SimulationRandom random;
+	private TickContext tickContext = new TickContext(0, 0);
+
+	private SimulationConfig config;
+	private Context<Object> context;
+	private Network<Object> network;
+	private AdjacencySnapshot adjacency;
+	private TradeFlowOverlay tradeFlows;
+	private boolean displayed;
+	private Grid grid;
+	private HashMap<String, AgentGenerator> agentGeneratorMap;
+	private PhaseRegistry phaseRegistry;
+	private double simulationConstant;
+
+	private int agentCount;
+	private Storage defaultStorage;
+	private Amplify amplify;
+
+	public SimulationInstance(SimulationEngine engine, SimulationRandom random) {
+		this.engine = engine;
+		this.random = random;
+	}
+
+	public static SimulationInstance getCurrent() {
+		SimulationInstance instance = current.get();
+		if (instance == null) {
+			return shared;
+		}
+		return instance;
+	}
+
+	/**
+	 * Makes the instance the current one of the calling thread.
+	 *
+	 * @return the instance which was current before
+	 */
+	public static SimulationInstance enter(SimulationInstance instance) {
+		SimulationInstance previous = current.get();
+		if (instance == null) {
+			current.remove();
+		} else {
+			current.set(instance);
+		}
+		return previous;
+	}
+
+	/**
+	 * Makes the instance the one seen by threads which never entered one.
+	 */
+	public static void share(SimulationInstance instance) {
+		shared = instance;
+	}
+
+	/**
+	 * @return the headless engine running the simulation or null when it is
+	 *         run by Repast
+	 */
+	public SimulationEngine getEngine() {
+		return engine;
+	}
+
+	public SimulationRandom getRandom() {
+		return random;
+	}
+
+	public TickContext getTickContext() {
+		return tickContext;
+	}
+
+	public void setTickContext(TickContext tickContext) {
+		this.tickContext = tickContext;
+	}
+
+	/**
+	 * @return a new agent id; ids are dense within a simulation
+	 */
+	public int nextAgentId() {
+		return agentCount++;
+	}
+
+	/**
+	 * @return the storage of agents without one, created on first use
+	 */
+	public Storage getDefaultStorage() {
+		if (defaultStorage == null) {
+			defaultStorage = new Storage(BlankReliability.getBlankReliability(), 0, 1, 1, 0);
+		}
+		return defaultStorage;
+	}
+
+	/**
+	 * @return an amplifier reused for short computations, set to the factor
+	 */
+	public Amplify getAmplify(double factor) {
+		if (amplify == null) {
+			amplify = new Amplify(factor);
+		} else {
+			amplify.setFactor(factor);
+		}
+		return amplify;
+	}
+
+	/*
+	 * Built by SmartGridBuilder
+	 */
+	public SimulationConfig getConfig() {
+		return config;
+	}
+
+	public void setConfig(SimulationConfig config) {
+		this.config = config;
+	}
+
+	public Context<Object> getContext() {
+		return context;
+	}
+
+	public void setContext(Context<Object> context) {
+		this.context = context;
+	}
+
+	public Network<Object> getNetwork() {
+		return network;
+	}
+
+	public void setNetwork(Network<Object> network) {
+		this.network = network;
+		this.adjacency = null;
+		this.tradeFlows = null;
+	}
+
+	/**
+	 * @return the adjacency of the agents, rebuilt after the population or the
+	 *         network has changed
+	 */
+	public AdjacencySnapshot getAdjacency() {
+		if (adjacency == null) {
+			adjacency = AdjacencySnapshot.build(network, phaseRegistry.getAgentArray());
+		}
+		return adjacency;
+	}
+
+	public void invalidateAdjacency() {
+		syncTradeFlows();
+		adjacency = null;
+		tradeFlows = null;
+	}
+
+	public TradeFlowOverlay getTradeFlows() {
+		if (tradeFlows == null) {
+			tradeFlows = new TradeFlowOverlay(getAdjacency());
+		}
+		return tradeFlows;
+	}
+
+	/**
+	 * Copies the trades into the network edges when the display shows them.
+	 */
+	public void syncTradeFlows() {
+		if (displayed && tradeFlows != null) {
+			tradeFlows.sync(network);
+		}
+	}
+
+	public void setDisplayed(boolean displayed) {
+		this.displayed = displayed;
+	}
+
+	public Grid getGrid() {
+		return grid;
+	}
+
+	public void setGrid(Grid grid) {
+		this.grid = grid;
+	}
+
+	public HashMap<String, AgentGenerator> getAgentGeneratorMap() {
+		return agentGeneratorMap;
+	}
+
+	public void setAgentGeneratorMap(HashMap<String, AgentGenerator> agentGeneratorMap) {
+		this.agentGeneratorMap = agentGeneratorMap;
+	}
+
+	public PhaseRegistry getPhaseRegistry() {
+		return phaseRegistry;
+	}
+
+	public void setPhaseRegistry(PhaseRegistry phaseRegistry) {
+		this.phaseRegistry = phaseRegistry;
+	}
+
+	public double getSimulationConstant() {
+		return simulationConstant;
+	}
+
+	public void setSimulationConstant(double simulationConstant) {
+		this.simulationConstant = simulationConstant;
+	}
+
+	// end of built by SmartGridBuilder
+}
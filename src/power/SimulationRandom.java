@@ -0,0 +1,95 @@
+package power;
+
+import cern.jet.random.Uniform;
+import cern.jet.random.engine.RandomEngine;
+
+import power.distributions.NormalNoise;
+import power.distributions.RandomStream;
+
+import repast.simphony.random.RandomHelper;
+
+/**
+ * The random streams of one simulation, split from its seed. Every component
+ * draws from a stream of its own: the network generator, the shuffles of the
+ * execution order, the grid and, through the AgentGenerators, every agent and
+ * each of its models, including the noise of the model. The results of a seed
+ * therefore do not depend on the order or the threads the components are
+ * built or run in.
+ *
+ * Distributions are built on the generator of the stream entered by their
+ * owner, so a distribution created while an agent is being built draws from
+ * that agent's stream.
+ */
+public class SimulationRandom {
+
+	public enum Stream {
+		Scenario, Network, Shuffle, Grid, Agents
+	}
+
+	private final RandomStream root;
+	private final Uniform shuffleUniform;
+	private final NormalNoise noise;
+	private RandomEngine generator;
+
+	private SimulationRandom(long seed) {
+		this.root = new RandomStream(seed);
+		this.shuffleUniform = new Uniform(getStream(Stream.Shuffle).createEngine());
+		this.noise = new NormalNoise();
+		this.generator = getStream(Stream.Scenario).createEngine();
+	}
+
+	public static SimulationRandom create(int seed) {
+		return new SimulationRandom(seed);
+	}
+
+	/**
+	 * @return the streams of the seed of the Repast run, so a Repast run and a
+	 *         headless one of the same seed agree
+	 */
+	public static SimulationRandom createFromRandomHelper() {
+		return new SimulationRandom(RandomHelper.getSeed());
+	}
+
+	public RandomStream getStream(Stream stream) {
+		return root.child(stream.ordinal());
+	}
+
+	/**
+	 * @return the generator of the stream entered last, on which distributions
+	 *         are built
+	 */
+	public RandomEngine getGenerator() {
+		return generator;
+	}
+
+	/**
+	 * Builds the distributions created until the returned generator is
+	 * restored on the stream. A stream must only be entered once, or its
+	 * draws would repeat.
+	 *
+	 * @return the generator to restore
+	 */
+	public RandomEngine enter(RandomStream stream) {
+		RandomEngine previous = generator;
+		generator = stream.createEngine();
+		return previous;
+	}
+
+	public void restore(RandomEngine previous) {
+		generator = previous;
+	}
+
+	/**
+	 * @return a value from the stream of the shuffles
+	 */
+	public int nextIntFromTo(int from, int to) {
+		return shuffleUniform.nextIntFromTo(from, to);
+	}
+
+	/**
+	 * @return the noise of the random models, drawn at the start of every tick
+	 */
+	public NormalNoise getNoise() {
+		return noise;
+	}
+}
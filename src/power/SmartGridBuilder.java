@@ -3,45 +3,35 @@ package power;
 // DO NOT FORGET:
 // TODO, FIX, ATTENTION, NOTE and bad, poor...
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-
 import power.components.Agent;
 import power.components.Grid;
 import power.components.generators.AgentGenerator;
-import power.helpers.XmlTools;
+import power.distributions.RandomStream;
+import power.networks.AdjacencySnapshot;
 import power.networks.MinMaxNetworkGenerator;
+import power.networks.TradeFlowOverlay;
+import power.output.ColumnarTickWriter;
 
 import repast.simphony.context.Context;
 import repast.simphony.context.space.graph.NetworkBuilder;
 import repast.simphony.context.space.graph.NetworkGenerator;
 import repast.simphony.dataLoader.ContextBuilder;
 import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.parameter.Parameters;
+import repast.simphony.essentials.RepastEssentials;
 import repast.simphony.space.graph.Network;
+import cern.jet.random.engine.RandomEngine;
 
 public class SmartGridBuilder implements ContextBuilder<Object> {
 
-	private enum XmlNode {
-		GridModel,
-		AgentGenerator
-	}
-
 	public enum RandomModelType {
 		SimulatedRandomModel, DynamicRandomModel, Default
 	}
 	
-	private static Context<Object> context;
-	private static Network<Object> network;
-	private static Grid grid;
-	private static HashMap<String, AgentGenerator> agentGeneratorMap;
+	private SimulationInstance instance;
+	private SimulationConfig config;
 
 	// parameters
 	private String fileName;
@@ -53,6 +43,17 @@ public class SmartGridBuilder implements ContextBuilder<Object> {
 	
 	@Override
 	public Context<Object> build(Context<Object> context) {
+		instance = SimulationInstance.getCurrent();
+		if (instance == null || instance.getEngine() == null) {
+			// a Repast run
+			instance = new SimulationInstance(null, SimulationRandom.createFromRandomHelper());
+			SimulationInstance.enter(instance);
+			SimulationInstance.share(instance);
+		}
+		config = SimulationConfig.read();
+		instance.setConfig(config);
+		TickContext.publish(0, config.getPeriod());
+
 		System.out.println();
 		System.out.println("Starting new simulation");
 		System.out.println("________________________________");
@@ -67,51 +68,59 @@ public class SmartGridBuilder implements ContextBuilder<Object> {
 		System.out.println("End: " + getEndSimulationTick());
 		System.out.println("File: " + getFileName());
 		System.out.println("OrdNeigh: " + getOrderNeighbors());
+		System.out.println("Market: " + config.getNeighborMarket());
 				
 		readParamaters();
 		System.out.println("Network: {Min:" + minDegree + " Max: " + maxDegree + " Rep: " + maxNumberOfRounds + "}");
 		
-		if(RunEnvironment.getInstance().isBatch()) {
+		if(SimulationEngine.getCurrent() == null && RunEnvironment.getInstance().isBatch()) {
 			System.out.println("Batch exec detected");
 			RunEnvironment.getInstance().endAt(getEndSimulationTick());
 		}
 		
 		context.setId("Smart Grid");
-		SmartGridBuilder.context = context;
-		SmartGridBuilder.agentGeneratorMap = new HashMap<String, AgentGenerator>();
-		
+		instance.setContext(context);
+		instance.setAgentGeneratorMap(new HashMap<String, AgentGenerator>());
+		instance.setPhaseRegistry(new PhaseRegistry(config.getNeighborMarket()));
+		instance.setDisplayed(SimulationEngine.getCurrent() == null && !RunEnvironment.getInstance().isBatch());
 		
 		initialize();
+		if (config.getTickOutputFile() != null) {
+			getPhaseRegistry().setTickWriter(ColumnarTickWriter.create(config.getTickOutputFile(), getGrid(), getAgentGeneratorMap().values()));
+		}
+		if (SimulationEngine.getCurrent() == null) {
+			getPhaseRegistry().schedule();
+		}
 		
 		double sum = 0;
-		for (AgentGenerator gen:SmartGridBuilder.agentGeneratorMap.values()) {
+		for (AgentGenerator gen:getAgentGeneratorMap().values()) {
 			List<Agent> list = gen.getAgents();
 			for (Agent agent:list) {
 				sum += agent.getMeanLoadSeed();
 			}
 		}
 		
-		SmartGridBuilder.simulationConstant = sum;
+		instance.setSimulationConstant(sum);
 		return context;
 	}
 
 	private void initialize() {
-		Element root = null;
-		try {
-			DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			root = builder.parse(fileName).getDocumentElement();
-		} catch (Exception e) { // poor error handling
-			System.err.println("Unable to open or parse: " + fileName);
-			(new Exception()).printStackTrace();
-			System.exit(1);
-		}
+		Scenario scenario = Scenario.load(fileName);
 		
-		SmartGridBuilder.grid = Grid.create(XmlTools.getExactlyOneNode(root, XmlNode.GridModel));
+		SimulationRandom random = instance.getRandom();
+		RandomEngine previous = random.enter(random.getStream(SimulationRandom.Stream.Grid));
+		Grid grid = scenario.getGridSpec().create();
+		random.restore(previous);
+		instance.setGrid(grid);
+		getPhaseRegistry().register(grid);
 		
-		ArrayList<Node> nodeList = XmlTools.getAtLeastOneNode(root, XmlNode.AgentGenerator);
-		for (Node node:nodeList) {
-			AgentGenerator agentGen = AgentGenerator.create(node);
+		// every group draws from a stream of its own, split by its position
+		RandomStream agentStreams = random.getStream(SimulationRandom.Stream.Agents);
+		int index = 0;
+		for (AgentGenerator.Spec spec:scenario.getAgentGeneratorSpecs()) {
+			AgentGenerator agentGen = spec.create(agentStreams.child(index++));
 			SmartGridBuilder.getAgentGeneratorMap().put(agentGen.getName(), agentGen);
+			getPhaseRegistry().register(agentGen);
 			agentGen.initializeAll();
 		}
 		
@@ -124,123 +133,153 @@ public class SmartGridBuilder implements ContextBuilder<Object> {
 	}
 	
 	private void readParamaters() {
-		Parameters params = RunEnvironment.getInstance().getParameters();
-		fileName = (String) params.getValue("fileName");
-		minDegree = (Integer) params.getValue("minDegree");
-		maxDegree = (Integer) params.getValue("maxDegree");
-		maxNumberOfRounds = (Integer) params.getValue("maxNumberOfRounds");
-		isConnected = (Boolean) params.getValue("isConnected");
+		fileName = config.getFileName();
+		minDegree = config.getMinDegree();
+		maxDegree = config.getMaxDegree();
+		maxNumberOfRounds = config.getMaxNumberOfRounds();
+		isConnected = config.getIsConnected();
 	}
 	
 	private void generateNetwork() {
 		NetworkBuilder<Object> networkBuilder = new NetworkBuilder<Object>("Smart Grid Network", getContext(), true);
 		NetworkGenerator<Object> networkGenerator = new MinMaxNetworkGenerator<Object>(minDegree, maxDegree, maxNumberOfRounds, isConnected);
 		networkBuilder.setGenerator(networkGenerator);
-		SmartGridBuilder.network = networkBuilder.buildNetwork();
+		instance.setNetwork(networkBuilder.buildNetwork());
 	}
 
 	/*
-	 * Getter/Setters
+	 * Getter/Setters, of the current SimulationInstance
 	 */
 	public static Context<Object> getContext() {
-		return context;
+		return SimulationInstance.getCurrent().getContext();
 	}
 
 	public static Network<Object> getNetwork() {
-		return network;
+		return SimulationInstance.getCurrent().getNetwork();
+	}
+
+	public static AdjacencySnapshot getAdjacency() {
+		return SimulationInstance.getCurrent().getAdjacency();
+	}
+
+	public static void invalidateAdjacency() {
+		SimulationInstance.getCurrent().invalidateAdjacency();
+	}
+
+	public static TradeFlowOverlay getTradeFlows() {
+		return SimulationInstance.getCurrent().getTradeFlows();
+	}
+
+	public static void syncTradeFlows() {
+		SimulationInstance.getCurrent().syncTradeFlows();
 	}
 	
 	public static HashMap<String, AgentGenerator> getAgentGeneratorMap() {
-		return agentGeneratorMap;
+		return SimulationInstance.getCurrent().getAgentGeneratorMap();
 	}
 	
 	public static int getAgentPopulation() {
 		int population = 0;
-		for (AgentGenerator agentGen : agentGeneratorMap.values()) {
+		for (AgentGenerator agentGen : getAgentGeneratorMap().values()) {
 			population += agentGen.getPopulation();
 		}
 		return population;
 	}
 
 	public static Grid getGrid() {
-		return grid;
+		return SimulationInstance.getCurrent().getGrid();
+	}
+	
+	public static SimulationConfig getConfig() {
+		return SimulationInstance.getCurrent().getConfig();
+	}
+	
+	public static PhaseRegistry getPhaseRegistry() {
+		return SimulationInstance.getCurrent().getPhaseRegistry();
+	}
+	
+	public static int getTickCount() {
+		SimulationEngine engine = SimulationEngine.getCurrent();
+		if (engine != null) {
+			return engine.getTickCount();
+		}
+		return (int) RepastEssentials.GetTickCount();
 	}
 	
 	public static String getFileName() {
-		return (String) RunEnvironment.getInstance().getParameters().getValue("fileName");
+		return getConfig().getFileName();
 	}
 	
 	public static int getPeriod() {
-		return (Integer) RunEnvironment.getInstance().getParameters().getValue("period");
+		return getConfig().getPeriod();
 	}
 	
 	public static int getWindowSize() {
-		return (Integer) RunEnvironment.getInstance().getParameters().getValue("windowSize");
+		return getConfig().getWindowSize();
 	}
 
 	public static boolean getCanTrade() {
-		return (Boolean) RunEnvironment.getInstance().getParameters().getValue("canTrade");
+		return getConfig().getCanTrade();
 	}
 	
 	public static boolean getCanSuspendLoad() {
-		return (Boolean) RunEnvironment.getInstance().getParameters().getValue("canSuspendLoad");
+		return getConfig().getCanSuspendLoad();
 	}
 	
 	public static double getHourlyGridBuyBack() {
-		return (Double) RunEnvironment.getInstance().getParameters().getValue("hourlyGridBuyBack");
+		return getConfig().getHourlyGridBuyBack();
 	}
 
 	public static double getHistoryValue() {
-		return (Double) RunEnvironment.getInstance().getParameters().getValue("historyValue");
+		return getConfig().getHistoryValue();
 	}
 
 	public static boolean getSimulateReliability() {
-		return (Boolean) RunEnvironment.getInstance().getParameters().getValue("simulateReliability");
+		return getConfig().getSimulateReliability();
 	}
 	
 	public static boolean getPauseOnBlackout() {
-		return (Boolean) RunEnvironment.getInstance().getParameters().getValue("pauseOnBlackout");
+		return getConfig().getPauseOnBlackout();
 	}
 	
 	public static boolean getForceDumping() {
-		return (Boolean) RunEnvironment.getInstance().getParameters().getValue("forceDumping");
+		return getConfig().getForceDumping();
 	}
 	
 	public static Double getResourceFactor() {
-		return (Double) RunEnvironment.getInstance().getParameters().getValue("resourceFactor");
+		return getConfig().getResourceFactor();
 	}
 	
 	public static Double getGenerationFactor() {
-		return (Double) RunEnvironment.getInstance().getParameters().getValue("generationFactor");
+		return getConfig().getGenerationFactor();
 	}
 	
 	public static Double getSmartFraction() {
-		return (Double) RunEnvironment.getInstance().getParameters().getValue("smartFraction");
+		return getConfig().getSmartFraction();
 	}
 	
 	public static Integer getRandomSeed() {
-		return (Integer) RunEnvironment.getInstance().getParameters().getValue("randomSeed");
+		return getConfig().getRandomSeed();
 	}
 	
 	public static Double getSuspendFactor() {
-		return (Double) RunEnvironment.getInstance().getParameters().getValue("suspendFactor");
+		return getConfig().getSuspendFactor();
 	}
 	
 	public static boolean getOrderNeighbors() {
-		return (Boolean) RunEnvironment.getInstance().getParameters().getValue("orderNeighbors");
+		return getConfig().getOrderNeighbors();
 	}
 	
 	public static boolean getBeGenerationScrooge() {
-		return (Boolean) RunEnvironment.getInstance().getParameters().getValue("beGenerationScrooge");
+		return getConfig().getBeGenerationScrooge();
 	}
 	
 	// batch only parameter
 	public static Integer getEndSimulationTick() {
-		return (Integer) RunEnvironment.getInstance().getParameters().getValue("endSimulationTick");
+		return getConfig().getEndSimulationTick();
 	}	
 
-	private static double simulationConstant;
 	public static double getSimulationConstant() {
-		return simulationConstant; 
+		return SimulationInstance.getCurrent().getSimulationConstant();
 	}
 }
\ No newline at end of file
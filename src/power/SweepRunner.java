@@ -0,0 +1,178 @@
+package power;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the points of a parameter sweep concurrently in one JVM, each on its
+ * own SimulationEngine and SimulationInstance.
+ *
+ * Usage: SweepRunner [parameters.xml] [threads=N] [runs=R] [name=value ...],
+ * where a value with commas, such as smartFraction=0.1,0.5,0.9, is swept over
+ * and every combination of the swept values is run R times. Run r of a point
+ * uses the seed randomSeed + r, and with a tickOutputFile every point writes
+ * to a file of its own.
+ */
+public class SweepRunner {
+
+	private final HashMap<String, Object> parameters;
+	private final ArrayList<String> names = new ArrayList<String>();
+	private final ArrayList<String[]> values = new ArrayList<String[]>();
+	private int runs = 1;
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	public SweepRunner(HashMap<String, Object> parameters) {
+		this.parameters = parameters;
+	}
+
+	public void addSweep(String name, String[] sweptValues) {
+		names.add(name);
+		values.add(sweptValues);
+	}
+
+	public void setRuns(int runs) {
+		this.runs = runs;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the assignments of every point, one combination of the swept
+	 *         values per point, each repeated for every run
+	 */
+	private ArrayList<ArrayList<String>> getPoints() {
+		ArrayList<ArrayList<String>> points = new ArrayList<ArrayList<String>>();
+		points.add(new ArrayList<String>());
+		for (int dimension = 0; dimension < names.size(); dimension++) {
+			ArrayList<ArrayList<String>> expanded = new ArrayList<ArrayList<String>>();
+			for (ArrayList<String> point : points) {
+				for (String value : values.get(dimension)) {
+					ArrayList<String> assignments = new ArrayList<String>(point);
+					assignments.add(names.get(dimension) + "=" + value);
+					expanded.add(assignments);
+				}
+			}
+			points = expanded;
+		}
+		return points;
+	}
+
+	public void run() {
+		Integer baseSeed = (Integer) parameters.get("randomSeed");
+		if (baseSeed == null) {
+			baseSeed = (int) System.currentTimeMillis();
+		}
+		String tickOutputFile = (String) parameters.get("tickOutputFile");
+
+		ArrayList<ArrayList<String>> points = getPoints();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+		int index = 0;
+		for (ArrayList<String> point : points) {
+			for (int run = 0; run < runs; run++) {
+				HashMap<String, Object> runParameters = new HashMap<String, Object>(parameters);
+				for (String assignment : point) {
+					SimulationEngine.overrideParameter(runParameters, assignment);
+				}
+				runParameters.put("randomSeed", baseSeed + run);
+				if (tickOutputFile != null) {
+					runParameters.put("tickOutputFile", tickOutputFile + "." + index);
+				}
+				results.add(executor.submit(new SweepTask(index, point.toString() + " seed=" + (baseSeed + run), runParameters)));
+				index++;
+			}
+		}
+
+		try {
+			for (Future<String> result : results) {
+				System.out.println(result.get());
+			}
+		} catch (InterruptedException e) {
+			System.err.println("Interrupted while waiting for the sweep");
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		} catch (ExecutionException e) {
+			System.err.println("A run of the sweep failed");
+			e.getCause().printStackTrace();
+			System.exit(1);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Builds and runs one point on the calling thread.
+	 */
+	private static class SweepTask implements Callable<String> {
+		private final int index;
+		private final String description;
+		private final HashMap<String, Object> parameters;
+
+		public SweepTask(int index, String description, HashMap<String, Object> parameters) {
+			this.index = index;
+			this.description = description;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public String call() {
+			long start = System.nanoTime();
+			SimulationEngine engine = new SimulationEngine(parameters);
+			try {
+				engine.build();
+				int endTick = SmartGridBuilder.getEndSimulationTick();
+				engine.run(endTick);
+				double elapsed = (System.nanoTime() - start) / 1e6;
+				return "Run " + index + " " + description + ": " + (endTick + 1) + " ticks in " + elapsed + " ms";
+			} finally {
+				SimulationInstance.enter(null);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		int first = 0;
+		String parametersFile = SimulationEngine.defaultParametersFile;
+		if (args.length > 0 && args[0].indexOf('=') < 0) {
+			parametersFile = args[0];
+			first = 1;
+		}
+
+		HashMap<String, Object> parameters = SimulationEngine.loadParameters(parametersFile);
+		parameters.put("parallelism", 1);
+		SweepRunner sweepRunner = new SweepRunner(parameters);
+		for (int index = first; index < args.length; index++) {
+			String assignment = args[index];
+			int split = assignment.indexOf('=');
+			String name = split > 0 ? assignment.substring(0, split) : assignment;
+			String value = assignment.substring(split + 1);
+			if (name.equals("threads")) {
+				sweepRunner.setThreads(Integer.parseInt(value));
+			} else if (name.equals("runs")) {
+				sweepRunner.setRuns(Integer.parseInt(value));
+			} else if (split > 0 && value.indexOf(',') >= 0) {
+				sweepRunner.addSweep(name, value.split(","));
+			} else {
+				SimulationEngine.overrideParameter(parameters, assignment);
+			}
+		}
+
+		Integer endTick = (Integer) parameters.get("endSimulationTick");
+		if (endTick == null || endTick < 0) {
+			System.err.println("endSimulationTick must be set to run a sweep");
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+
+		long start = System.nanoTime();
+		sweepRunner.run();
+		System.out.println("Finished the sweep in " + (System.nanoTime() - start) / 1e6 + " ms");
+	}
+}
@@ -0,0 +1,38 @@
+package power;
+
+/**
+ * The tick being simulated and its phase within the period. A new context is
+ * published by the PhaseRegistry at the start of every tick, before any
+ * component reads it, so the windows and models do not have to query the
+ * schedule and redo the modulo themselves. Each SimulationInstance has its
+ * own.
+ */
+public final class TickContext {
+
+	private final int tick;
+	private final int phase;
+
+	TickContext(int tick, int phase) {
+		this.tick = tick;
+		this.phase = phase;
+	}
+
+	public static TickContext getCurrent() {
+		return SimulationInstance.getCurrent().getTickContext();
+	}
+
+	public static void publish(int tick, int period) {
+		SimulationInstance.getCurrent().setTickContext(new TickContext(tick, tick % period));
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return the tick modulo the period
+	 */
+	public int getPhase() {
+		return phase;
+	}
+}
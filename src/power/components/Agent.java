@@ -14,15 +14,22 @@ import java.util.TreeSet;
 import com.sun.java.swing.plaf.windows.resources.windows;
 
 import cern.colt.Arrays;
+import cern.jet.random.Uniform;
 
+import power.SimulationConfig;
+import power.SimulationInstance;
 import power.SmartGridBuilder;
+import power.TickContext;
+import power.components.AgentStateTable.Column;
 import power.components.generators.AgentGenerator;
 import power.helpers.AdjustedRunningMax;
 import power.helpers.Computations;
+import power.helpers.ForecastAreas;
 import power.helpers.HelperFunctions;
 import power.helpers.PeriodicFullMinMax;
 import power.helpers.RunningMean;
 import power.models.IRandomModel;
+import power.networks.AdjacencySnapshot;
 import power.tools.Absolute;
 import power.tools.Adjuster;
 import power.tools.Clamp;
@@ -31,10 +38,7 @@ import power.tools.IDescribable;
 import power.tools.IListAccessor;
 import power.tools.ISimpleAdjuster;
 
-import repast.simphony.engine.schedule.ScheduledMethod;
-import repast.simphony.essentials.RepastEssentials;
 import repast.simphony.random.RandomHelper;
-import repast.simphony.space.graph.RepastEdge;
 
 /**
  * @author That
@@ -64,6 +68,8 @@ public class Agent implements IDescribable {
 	private final Storage storage;
 	private final int foresight;
 	private final boolean smart;
+	private final SimulationConfig config;
+	private final NeighborMarket market;
 
 	// Agent memory
 	private final AdjustedRunningMax demandWindow;
@@ -72,35 +78,12 @@ public class Agent implements IDescribable {
 	// private final RunningMean priceWindow;
 
 	// Characteristics
-	private boolean isConnectedToGrid;
-	private double currentlySatisfiedLoad;
-	private double currentlySpentGeneration;
-
-	private double suspendedLoad;
-	private double currentAddedSuspension;
-	private double currentRemovedSuspension;
-
-	// zero by default
-	private double currentPowerBoughtFromGrid;
-	private double currentPowerBoughtFromNeighbors;
-	private double currentPowerSoldToGrid;
-	private double currentPowerSoldToNeighbors;
-	private double currentNeighborhoodRequest;
-	private double currentDumpedPower;
-	private double currentForcefullySuspendedLoad;
-
-	// accounting
-	// zero by default
-	private double currentDebitToGrid;
-	private double currentDebitToNeighbors;
-	private double currentCreditFromGrid;
-	private double currentCreditFromNeighbors;
-
-	// zero by default
-	private double currentStorageCost;
-	private double currentGenerationCost;
-
-	private static int population = 0;
+	// counters, kept in the state table of the group
+	private final AgentStateTable state;
+	private final int slot;
+	// the stream of the agent, entered by its generator
+	private final Uniform random;
+
 	private int id;
 
 	public Agent(Grid grid,
@@ -112,13 +95,17 @@ public class Agent implements IDescribable {
 			Storage storage,
 			int foresight,
 			boolean smart) {
-		id = population++;
-		isConnectedToGrid = true;
+		id = SimulationInstance.getCurrent().nextAgentId();
 		// System.out.println("Constructing: " + this.toString());
 
 		this.grid = grid;
 		this.group = group;
 		this.smart = smart;
+		this.config = SmartGridBuilder.getConfig();
+		this.market = SmartGridBuilder.getPhaseRegistry().getNeighborMarket();
+		this.state = group.getStateTable();
+		this.slot = state.allocate(smart);
+		this.random = new Uniform(SimulationInstance.getCurrent().getRandom().getGenerator());
 
 		if (reliability == null) {
 			this.reliability = BlankReliability.getBlankReliability();
@@ -139,6 +126,8 @@ public class Agent implements IDescribable {
 
 		this.storage = storage;
 		this.foresight = foresight;
+		this.deficitProfile = new double[Math.max(foresight, 0)];
+		this.requestProfile = new double[Math.max(foresight, 0)];
 
 		demandWindow = new AdjustedRunningMax(Absolute.getSingleton());
 		deficitWindow = new RunningMean();
@@ -146,71 +135,45 @@ public class Agent implements IDescribable {
 		// priceWindow = grid.getPriceWindow();
 	}
 
-	@ScheduledMethod(start = 0, interval = 1, priority = 1)
+	// run by the PhaseRegistry at priority 1
 	public void initialize() {
 		phase = SimulationPhase.Init;
-		period = ((int) RepastEssentials.GetTickCount()) % SmartGridBuilder.getPeriod();
+		period = TickContext.getCurrent().getPhase();
 
 		hasBeenOrdered = false;
 		
 		// clean memoirs
-		underAverageDeficit = null;
-		underAverageRequest = null;
+		areasComputed = false;
 //		underSeaRequest = null;
-		overAverageDeficit = null;
-		overAverageRequest = null;
-		
-		localUnderAverageDeficit = null;
-		localUnderAverageRequest = null;
 //		localUnderSeaRequest = null;
-		localOverAverageDeficit = null;
-		localOverAverageRequest = null;
 //		localOverSeaRequest = null;
 //		localOverMinRequest = null;
-		
-		dynamicOverAverageDeficit = null;
-		dynamicUnderAverageDeficit = null;
-
 //		requestSeaLevel = null;
-		
 		buyingFromNeighborsAvailability = null;
 		neighborhoodRequestRation = null;
 
-		// load
-		currentlySatisfiedLoad = 0;
-		currentlySpentGeneration = 0;
-		currentAddedSuspension = 0;
-		currentRemovedSuspension = 0;
-		currentForcefullySuspendedLoad = 0;
-
-		currentPowerBoughtFromGrid = 0;
-		currentPowerBoughtFromNeighbors = 0;
-		currentPowerSoldToGrid = 0;
-		currentPowerSoldToNeighbors = 0;
-		currentNeighborhoodRequest = 0;
-		currentDumpedPower = 0;
-
-		currentStorageCost = storage.getCostFactor() * storage.getCapacity();
-		currentGenerationCost = generationModel.getCostFactor() * generationModel.getCurrentValue();
-
-		currentDebitToGrid = 0;
-		currentDebitToNeighbors = 0;
-		currentCreditFromGrid = 0;
-		currentCreditFromNeighbors = 0;
+		// the per-tick counters are zeroed by the group beforehand
+		state.set(Column.StorageCost, slot, storage.getCostFactor() * storage.getCapacity());
+		state.set(Column.GenerationCost, slot, generationModel.getCostFactor() * generationModel.getCurrentValue());
 
 		deficitWindow.add(getDeficit());
 	}
 
-	@ScheduledMethod(start = 0, interval = 1, priority = -1)
+	// run by the PhaseRegistry at priority -1
 	public void finalize() {
 		phase = SimulationPhase.Fin;
 
-		suspendedLoad = getCurrentSuspendedLoad();
+		state.set(Column.SuspendedLoad, slot, getCurrentSuspendedLoad());
 		demandWindow.add(getCurrentDemand());
 		neighborhoodRequestWindow.add(getCurrentNeighborhoodRequest());
+
+		// the storages are finalized ahead of the agents
+		state.set(Column.StoredPower, slot, getStoredPower());
+		state.set(Column.MeanNeighborhoodRequest, slot, getMeanNeighborhoodRequest());
+		state.set(Column.MaxDemandOfPeriod, slot, getMaxDemandOfPeriod());
 	}
 
-	@ScheduledMethod(start = 0, interval = 1, priority = 0)
+	// run by the PhaseRegistry at priority 0
 	public void execute() {
 //		System.out.println("+" + RepastEssentials.GetTickCount() + ": " + toString());
 		phase = SimulationPhase.Exec;
@@ -260,7 +223,7 @@ public class Agent implements IDescribable {
 				
 //				spendGeneratedPower(storage.energize(getCurrentRemainingGeneration()));
 				
-				if(SmartGridBuilder.getForceDumping()) {
+				if(config.getForceDumping()) {
 					spendGeneratedPower(dumpPower(getCurrentRemainingGeneration()));
 				}
 			}
@@ -280,7 +243,7 @@ public class Agent implements IDescribable {
 				
 //				spendGeneratedPower(storage.energize(getCurrentRemainingGeneration()));
 
-				if (SmartGridBuilder.getForceDumping()) {
+				if (config.getForceDumping()) {
 					spendGeneratedPower(dumpPower(getCurrentRemainingGeneration()));
 				}
 			} else if (getDeficit() < 0) {
@@ -297,7 +260,7 @@ public class Agent implements IDescribable {
 			}
 		}
 
-		if (SmartGridBuilder.getCanTrade() &&
+		if (config.getCanTrade() &&
 				storage.getCurrentAvailableCapacity() > getLocalUnderAverageDeficit() &&
 //				getRequestSeaLevel() > getPredictedNeighborhoodRequest()) {
 				getMeanNeighborhoodRequest() > getPredictedNeighborhoodRequest()) {
@@ -315,16 +278,35 @@ public class Agent implements IDescribable {
 		}
 		
 		// fix remaining load
+		if (market != null) {
+			// settled after the market clears
+			if (config.getCanTrade()) {
+				market.bid(this, getCurrentUnsatisfiedLoad());
+				postNeighborhoodOffer();
+			}
+			return;
+		}
 //		if (grid.getCurrentBasePrice() > grid.getMeanBasePrice()) {
 			satisfyLoad(buyFromNeighbors(getCurrentUnsatisfiedLoad())); //ok
 //		}
+		completeExecution();
+	}
+
+	// run by the PhaseRegistry after the neighbor market has cleared
+	public void settle() {
+		sellToNeighborhoodMarket(market.getRequested(this), market.getSold(this));
+		satisfyLoad(buyFromNeighborhoodMarket(market.getFilled(this)));
+		completeExecution();
+	}
+
+	private void completeExecution() {
 		suspendLoad(getCurrentUnsatisfiedLoad());
 		satisfyLoad(buyFromGrid(getCurrentUnsatisfiedLoad())); // ok
 		satisfyLoad(spendStoredPower(getCurrentUnsatisfiedLoad())); // ok
 		
 		// fix remaining generation
 		spendGeneratedPower(satisfySuspendedLoad(getCurrentRemainingGeneration()));
-		if (SmartGridBuilder.getBeGenerationScrooge()) {
+		if (config.getBeGenerationScrooge()) {
 			spendGeneratedPower(storage.energize(getCurrentRemainingGeneration()));
 		}
 		spendGeneratedPower(sellToGrid(getCurrentRemainingGeneration()));
@@ -337,49 +319,41 @@ public class Agent implements IDescribable {
 	/*
 	 * Blackout methods
 	 */
-	public void reconnectToGrid() {
-		isConnectedToGrid = true;
-	}
-
-	public void disconnectFromGrid() {
-		isConnectedToGrid = false;
-	}
-
 	public boolean isConnectedToGrid() {
-		return isConnectedToGrid;
+		return grid.isConnected(this);
 	}
 
 	/*
 	 * interaction methods
 	 */
 	private double getBuyingFromGridAvailability(double power) {
-		if (!isConnectedToGrid)
+		if (!isConnectedToGrid())
 			return 0.0;
 		return power;
 	}
 
 	private double buyFromGrid(double power) {
-		if (!isConnectedToGrid)
+		if (!isConnectedToGrid())
 			return 0.0;
 		double powerBought = grid.buyFromGrid(power);
-		currentPowerBoughtFromGrid += powerBought;
-		currentDebitToGrid += grid.getSellingValue(powerBought);
+		state.add(Column.PowerBoughtFromGrid, slot, powerBought);
+		state.add(Column.DebitToGrid, slot, grid.getSellingValue(powerBought));
 		return powerBought;
 	}
 
 	private double getSellingToGridAvailability(double power) {
-		if (!isConnectedToGrid)
+		if (!isConnectedToGrid())
 			return 0.0;
 		return grid.getSellToGridAvailability(power);
 	}
 
 	private double sellToGrid(double power) {
-		if (!isConnectedToGrid)
+		if (!isConnectedToGrid())
 			return 0.0;
 
 		double soldPower = grid.sellToGrid(power);
-		currentPowerSoldToGrid += soldPower;
-		currentCreditFromGrid += grid.getBuyingValue(soldPower);
+		state.add(Column.PowerSoldToGrid, slot, soldPower);
+		state.add(Column.CreditFromGrid, slot, grid.getBuyingValue(soldPower));
 		return soldPower;
 	}
 
@@ -388,18 +362,13 @@ public class Agent implements IDescribable {
 	private double getBuyingFromNeighborsAvailability() {
 		if (buyingFromNeighborsAvailability == null) {
 			double available = 0;
-			for (Object obj : SmartGridBuilder.getNetwork().getAdjacent(this)) {
-				if (obj instanceof Agent) {
-					Agent agent = (Agent) obj;
-					available = agent.getSellingToNeighborsAvailability(this);
-				}
+			AdjacencySnapshot adjacency = SmartGridBuilder.getAdjacency();
+			for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+				Agent agent = adjacency.getAgent(adjacency.getNeighbor(index));
+				available += agent.getSellingToNeighborsAvailability(this);
 			}
 			buyingFromNeighborsAvailability = available;
 		}
-		
-		if (buyingFromNeighborsAvailability > 0) {
-			System.out.println("Say: " + buyingFromNeighborsAvailability);
-		}
 		return buyingFromNeighborsAvailability;
 	}
 
@@ -410,7 +379,7 @@ public class Agent implements IDescribable {
 	}
 
 	private double buyFromNeighbors(double request) {
-		if (!SmartGridBuilder.getCanTrade() || request <= 0) return 0;
+		if (!config.getCanTrade() || request <= 0) return 0;
 		ArrayList<Neighbor> neighbors = getNeighborhood();
 
 		double available = 0;
@@ -426,22 +395,22 @@ public class Agent implements IDescribable {
 
 		if (buyingFromNeighborsAvailability != null)
 			buyingFromNeighborsAvailability -= available;
-		currentPowerBoughtFromNeighbors += available;
-		currentDebitToNeighbors = grid.getBaseValue(currentPowerBoughtFromNeighbors);
+		state.add(Column.PowerBoughtFromNeighbors, slot, available);
+		state.set(Column.DebitToNeighbors, slot, grid.getBaseValue(state.get(Column.PowerBoughtFromNeighbors, slot)));
 		return available;
 	}
 
 	private double getSellingToNeighborsAvailability(Agent requester) {
 		if (!reliability.isOperational() ||
-				!SmartGridBuilder.getCanTrade() || 
+				!config.getCanTrade() || 
 //				grid.getCurrentBasePrice() <= grid.getMeanBasePrice() ||
 //				getPredictedNeighborhoodRequest() <= neighborhoodRequestWindow.getPeriodMin() ||
 				getCurrentStoredPower() <= getLocalOverAverageDeficit() ||
 				getMeanNeighborhoodRequest() >= getPredictedNeighborhoodRequest() ||
-				currentNeighborhoodRequest >= getNeighborhoodRequestRation())
+				state.get(Column.NeighborhoodRequest, slot) >= getNeighborhoodRequestRation())
 		return 0.0;
 		
-		return getStoragePowerAvailability(getNeighborhoodRequestRation() - currentPowerSoldToNeighbors);
+		return getStoragePowerAvailability(getNeighborhoodRequestRation() - state.get(Column.PowerSoldToNeighbors, slot));
 //		return getStoragePowerAvailability(getCurrentStoredPower() - getLocalOverAverageDeficit());
 	}
 
@@ -477,41 +446,79 @@ public class Agent implements IDescribable {
 //		System.out.println("+requestToBuy(" + requester.toString() + ", " + request + ")");
 		double power = storage.draw(getSellingToNeighborsAvailability(requester, request));
 		
-		currentNeighborhoodRequest += request;
-		currentPowerSoldToNeighbors += power;
-		currentCreditFromNeighbors = grid.getBaseValue(currentPowerSoldToNeighbors);
+		state.add(Column.NeighborhoodRequest, slot, request);
+		state.add(Column.PowerSoldToNeighbors, slot, power);
+		state.set(Column.CreditFromNeighbors, slot, grid.getBaseValue(state.get(Column.PowerSoldToNeighbors, slot)));
 		if (power > 0) {
-			RepastEdge<Object> edge = SmartGridBuilder.getNetwork().getEdge(requester, this);
-			if (edge != null) {
-				SmartGridBuilder.getNetwork().removeEdge(edge);
-				SmartGridBuilder.getNetwork().addEdge(this, requester);
-			}
-			edge = SmartGridBuilder.getNetwork().getEdge(this, requester);
-			edge.setWeight(power);
+			recordNeighborhoodTrade(requester, power);
 		}
 //		System.out.println("-requestToBuy(): " + power);
 		return power;
 	}
 
+	/**
+	 * Points the edge to the requester and weights it with the power sold.
+	 */
+	void recordNeighborhoodTrade(Agent requester, double power) {
+		SmartGridBuilder.getTradeFlows().record(this, requester, power);
+	}
+
+	/*
+	 * Neighbor market
+	 */
+	/**
+	 * Offers the ration of the tick to the market, unless the agent would not
+	 * sell to a direct request either; the market applies the reserve.
+	 */
+	private void postNeighborhoodOffer() {
+		if (!reliability.isOperational() ||
+				getMeanNeighborhoodRequest() >= getPredictedNeighborhoodRequest())
+			return;
+		market.offer(this, getNeighborhoodRequestRation(), getLocalOverAverageDeficit(), getCurrentStoredPower());
+	}
+
+	private void sellToNeighborhoodMarket(double request, double power) {
+		state.add(Column.NeighborhoodRequest, slot, request);
+		if (power <= 0)
+			return;
+		power = storage.draw(power);
+		state.add(Column.PowerSoldToNeighbors, slot, power);
+		state.set(Column.CreditFromNeighbors, slot, grid.getBaseValue(state.get(Column.PowerSoldToNeighbors, slot)));
+	}
+
+	private double buyFromNeighborhoodMarket(double power) {
+		if (power <= 0)
+			return 0;
+		market.recordTrades(this);
+		if (buyingFromNeighborsAvailability != null)
+			buyingFromNeighborsAvailability -= power;
+		state.add(Column.PowerBoughtFromNeighbors, slot, power);
+		state.set(Column.DebitToNeighbors, slot, grid.getBaseValue(state.get(Column.PowerBoughtFromNeighbors, slot)));
+		return power;
+	}
+
+	// end of neighbor market
+
 	// End of interaction method segment
 
 	/*
 	 * Start of computations section
 	 */
-	private Double underAverageDeficit = null;
+	// forecast profiles over the foresight, filled once per tick
+	private final double[] deficitProfile;
+	private final double[] requestProfile;
+	private final ForecastAreas deficitAreas = new ForecastAreas();
+	private final ForecastAreas requestAreas = new ForecastAreas();
+	private boolean areasComputed;
+	
 	private double getUnderAverageDeficit() {
-		if (underAverageDeficit == null) {
-			underAverageDeficit = getAreaFromBaseline(deficitAccessor, underAdjuster, getMeanDeficit());
-		}
-		return underAverageDeficit;
+		computeAreas();
+		return deficitAreas.getUnder();
 	}
 	
-	private Double underAverageRequest = null;
 	private double getUnderAverageRequest() {
-		if (underAverageRequest == null) {
-			underAverageRequest = getAreaFromBaseline(requestAccessor, underAdjuster, getMeanNeighborhoodRequest());
-		}
-		return underAverageRequest;
+		computeAreas();
+		return requestAreas.getUnder();
 	}
 	
 //	private Double underSeaRequest = null;
@@ -522,36 +529,24 @@ public class Agent implements IDescribable {
 //		return underSeaRequest;
 //	}
 	
-	private Double overAverageDeficit = null;
 	private double getOverAverageDeficit() {
-		if (overAverageDeficit == null) {
-			overAverageDeficit = getAreaFromBaseline(deficitAccessor, overAdjuster, getMeanDeficit());
-		}
-		return overAverageDeficit;
+		computeAreas();
+		return deficitAreas.getOver();
 	}
 	
-	private Double overAverageRequest = null;
 	private double getOverAverageRequest() {
-		if (overAverageRequest == null) {
-			overAverageRequest = getAreaFromBaseline(requestAccessor, overAdjuster, getMeanNeighborhoodRequest());
-		}
-		return overAverageRequest;
+		computeAreas();
+		return requestAreas.getOver();
 	}
 
-	private Double localUnderAverageDeficit = null;
 	private double getLocalUnderAverageDeficit() {
-		if (localUnderAverageDeficit == null) {
-			localUnderAverageDeficit = getLocalAreaFromBaseline(deficitAccessor, underAdjuster, getMeanDeficit());
-		}
-		return localUnderAverageDeficit;
+		computeAreas();
+		return deficitAreas.getLocalUnder();
 	}
 	
-	private Double localUnderAverageRequest = null;
 	private double getLocalUnderAverageRequest() {
-		if (localUnderAverageRequest == null) {
-			localUnderAverageRequest = getLocalAreaFromBaseline(requestAccessor, underAdjuster, getMeanNeighborhoodRequest());
-		}
-		return localUnderAverageRequest;
+		computeAreas();
+		return requestAreas.getLocalUnder();
 	}
 	
 //	private Double localUnderSeaRequest = null;
@@ -562,20 +557,14 @@ public class Agent implements IDescribable {
 //		return localUnderSeaRequest;
 //	}
 	
-	private Double localOverAverageDeficit = null;
 	private double getLocalOverAverageDeficit() {
-		if (localOverAverageDeficit == null) {
-			localOverAverageDeficit = getLocalAreaFromBaseline(deficitAccessor, overAdjuster, getMeanDeficit());
-		}
-		return localOverAverageDeficit;
+		computeAreas();
+		return deficitAreas.getLocalOver();
 	}
 	
-	private Double localOverAverageRequest = null;
 	private double getLocalOverAverageRequest() {
-		if (localOverAverageRequest == null) {
-			localOverAverageRequest = getLocalAreaFromBaseline(requestAccessor, overAdjuster, getMeanNeighborhoodRequest());
-		}
-		return localOverAverageRequest;
+		computeAreas();
+		return requestAreas.getLocalOver();
 	}
 	
 //	private Double localOverSeaRequest = null;
@@ -594,66 +583,30 @@ public class Agent implements IDescribable {
 //		return localOverMinRequest;
 //	}
 
-	private Double dynamicUnderAverageDeficit = null;
 	private double getDynamicUnderAverageDeficit() {
-		if (dynamicUnderAverageDeficit == null) {
-			dynamicUnderAverageDeficit = getDynamicAreaFromBaseline(deficitAccessor, underAdjuster, getMeanDeficit());
-		}
-		return dynamicUnderAverageDeficit;
+		computeAreas();
+		return deficitAreas.getDynamicUnder();
 	}
 	
-	private Double dynamicOverAverageDeficit = null;
 	private double getDynamicOverAverageDeficit() {
-		if (dynamicOverAverageDeficit == null) {
-			dynamicOverAverageDeficit = getDynamicAreaFromBaseline(deficitAccessor, overAdjuster, getMeanDeficit());
-		}
-		return dynamicOverAverageDeficit;
-	}
-	
-	private double getAreaFromBaseline(IListAccessor window, ISimpleAdjuster adjuster, double baseline) {
-		double sum = 0.0;
-		for (int future = 0; future < foresight; future++) {
-			sum += adjuster.adjust(baseline - window.get(future));
-		}
-		return sum;
+		computeAreas();
+		return deficitAreas.getDynamicOver();
 	}
 	
-	private double getLocalAreaFromBaseline(IListAccessor window, ISimpleAdjuster adjuster, double baseline) {
-		double sum = 0.0, value;
-		int future = 0;
-		while ((value = adjuster.adjust(baseline - window.get(future))) > 0 && future < foresight) {
-			sum += value;
-			future++;
-		}
-		return sum;
-	}
-	
-	private double getDynamicAreaFromBaseline(IListAccessor window, ISimpleAdjuster adjuster, double baseline) {
-		double sum = 0.0;
-		double max = 0.0;
-		for (int future = 0; future < foresight; future++) {
-			sum += adjuster.adjust(baseline - window.get(future));
-			if (sum > max) {
-				max = sum;
+	private void computeAreas() {
+		if (!areasComputed) {
+			deficitWindow.fillPeriodMeans(deficitProfile, foresight);
+			if (foresight > 0) {
+				deficitProfile[0] = getDeficit();
 			}
+			neighborhoodRequestWindow.fillPeriodMeans(requestProfile, foresight);
+
+			deficitAreas.compute(deficitProfile, foresight, getMeanDeficit());
+			requestAreas.compute(requestProfile, foresight, getMeanNeighborhoodRequest());
+			areasComputed = true;
 		}
-		return max;
 	}
 	
-	private static final ISimpleAdjuster underAdjuster = new ISimpleAdjuster() {
-		@Override
-		public double adjust(double value) {
-			return value > 0 ? value : 0.0;
-		}
-	};
-	
-	private static final ISimpleAdjuster overAdjuster = new ISimpleAdjuster() {
-		@Override
-		public double adjust(double value) {
-			return value < 0 ? -value : 0.0;
-		}
-	};
-	
 //	private static final ISimpleAdjuster underPolyAdjuster = new ISimpleAdjuster() {
 //		private static final double power = 2.0;
 //		@Override
@@ -814,7 +767,7 @@ public class Agent implements IDescribable {
 		} else {
 			usedPower = getCurrentUnsatisfiedLoad();
 		}
-		currentlySatisfiedLoad += usedPower;
+		state.add(Column.SatisfiedLoad, slot, usedPower);
 		return usedPower;
 	}
 
@@ -830,14 +783,14 @@ public class Agent implements IDescribable {
 		} else {
 			usedPower = getCurrentSuspendedLoad();
 		}
-		currentRemovedSuspension += usedPower;
+		state.add(Column.RemovedSuspension, slot, usedPower);
 		return usedPower;
 	}
 
 	private double forcefullySuspendLoad(double power) {
 		double load = satisfyLoad(power);
-		currentAddedSuspension += load;
-		currentForcefullySuspendedLoad += load;
+		state.add(Column.AddedSuspension, slot, load);
+		state.add(Column.ForcefullySuspendedLoad, slot, load);
 		return load;
 	}
 
@@ -847,13 +800,13 @@ public class Agent implements IDescribable {
 	 * @return the amount of power suspended
 	 */
 	private double suspendLoad(double power) {
-		if (SmartGridBuilder.getCanSuspendLoad()) {
+		if (config.getCanSuspendLoad()) {
 			if (getCurrentRemainingSuspendableLoad() < power) {
 				power = getCurrentRemainingSuspendableLoad();
 			}
 
 			double load = satisfyLoad(power);
-			currentAddedSuspension += load;
+			state.add(Column.AddedSuspension, slot, load);
 			return load;
 		} else {
 			return 0;
@@ -866,7 +819,7 @@ public class Agent implements IDescribable {
 	 * @return the amount of power dumped
 	 */
 	private double dumpPower(double power) {
-		currentDumpedPower += power;
+		state.add(Column.DumpedPower, slot, power);
 		return power;
 	}
 
@@ -891,7 +844,7 @@ public class Agent implements IDescribable {
 		if (power > getCurrentRemainingGeneration()) {
 			usedPower = getCurrentRemainingGeneration();
 		}
-		currentlySpentGeneration += usedPower;
+		state.add(Column.SpentGeneration, slot, usedPower);
 		return usedPower;
 	}
 
@@ -922,11 +875,11 @@ public class Agent implements IDescribable {
 	}
 
 	private double getCurrentUnsatisfiedLoad() {
-		return loadModel.getCurrentValue() - currentlySatisfiedLoad;
+		return loadModel.getCurrentValue() - state.get(Column.SatisfiedLoad, slot);
 	}
 
 	private double getCurrentRemainingGeneration() {
-		return generationModel.getCurrentValue() - currentlySpentGeneration;
+		return generationModel.getCurrentValue() - state.get(Column.SpentGeneration, slot);
 	}
 
 	private double getCurrentDeficit() {
@@ -934,7 +887,7 @@ public class Agent implements IDescribable {
 	}
 
 	private double getCurrentSuspendedLoad() {
-		return suspendedLoad + getCurrentChangeInSuspention();
+		return state.get(Column.SuspendedLoad, slot) + getCurrentChangeInSuspention();
 	}
 
 	// End of value methods section
@@ -1007,7 +960,7 @@ public class Agent implements IDescribable {
 	}
 
 	public double getSuspendableLoad() {
-		if (SmartGridBuilder.getCanSuspendLoad())
+		if (config.getCanSuspendLoad())
 			return suspendableModel.getCurrentValue() * getLoad();
 		return 0;
 	}
@@ -1017,31 +970,31 @@ public class Agent implements IDescribable {
 	}
 
 	public double getCurrentAddedSuspension() {
-		return currentAddedSuspension;
+		return state.get(Column.AddedSuspension, slot);
 	}
 
 	public double getCurrentRemovedSuspension() {
-		return currentRemovedSuspension;
+		return state.get(Column.RemovedSuspension, slot);
 	}
 
 	public double getCurrentChangeInSuspention() {
-		return currentAddedSuspension - currentRemovedSuspension;
+		return state.get(Column.AddedSuspension, slot) - state.get(Column.RemovedSuspension, slot);
 	}
 
 	public double getSuspendedLoad() {
-		return suspendedLoad;
+		return state.get(Column.SuspendedLoad, slot);
 	}
 
 	public double getCurrentForcefullySuspendedLoad() {
-		return currentForcefullySuspendedLoad;
+		return state.get(Column.ForcefullySuspendedLoad, slot);
 	}
 	
 	public double getUnsatisfiedLoadCount() {
-		return currentForcefullySuspendedLoad > 0 ? 1 : 0; 
+		return state.get(Column.ForcefullySuspendedLoad, slot) > 0 ? 1 : 0; 
 	}
 
 	public double getCurrentDumpedPower() {
-		return currentDumpedPower;
+		return state.get(Column.DumpedPower, slot);
 	}
 
 	// end of internal state
@@ -1050,19 +1003,19 @@ public class Agent implements IDescribable {
 	 * Power accounts
 	 */
 	public double getCurrentPowerBoughtFromGrid() {
-		return currentPowerBoughtFromGrid;
+		return state.get(Column.PowerBoughtFromGrid, slot);
 	}
 
 	public double getCurrentPowerBoughtFromNeighbors() {
-		return currentPowerBoughtFromNeighbors;
+		return state.get(Column.PowerBoughtFromNeighbors, slot);
 	}
 
 	public double getCurrentPowerSoldToGrid() {
-		return currentPowerSoldToGrid;
+		return state.get(Column.PowerSoldToGrid, slot);
 	}
 
 	public double getCurrentPowerSoldToNeighbors() {
-		return currentPowerSoldToNeighbors;
+		return state.get(Column.PowerSoldToNeighbors, slot);
 	}
 
 	// end of power accounts
@@ -1071,27 +1024,27 @@ public class Agent implements IDescribable {
 	 * Monetary accounts
 	 */
 	public double getCurrentDebitToGrid() {
-		return currentDebitToGrid;
+		return state.get(Column.DebitToGrid, slot);
 	}
 
 	public double getCurrentDebitToNeighbors() {
-		return currentDebitToNeighbors;
+		return state.get(Column.DebitToNeighbors, slot);
 	}
 
 	public double getCurrentCreditFromGrid() {
-		return currentCreditFromGrid;
+		return state.get(Column.CreditFromGrid, slot);
 	}
 
 	public double getCurrentCreditFromNeighbors() {
-		return currentCreditFromNeighbors;
+		return state.get(Column.CreditFromNeighbors, slot);
 	}
 
 	public double getCurrentProfitFromNeigbors() {
-		return currentCreditFromNeighbors - currentDebitToNeighbors;
+		return state.get(Column.CreditFromNeighbors, slot) - state.get(Column.DebitToNeighbors, slot);
 	}
 
 	public double getCurrentProfitFromGrid() {
-		return currentCreditFromGrid - currentDebitToGrid;
+		return state.get(Column.CreditFromGrid, slot) - state.get(Column.DebitToGrid, slot);
 	}
 
 	public double getCurrentProfit() {
@@ -1104,11 +1057,11 @@ public class Agent implements IDescribable {
 	 * Start of cost functions
 	 */
 	public double getCurrentGenerationCost() {
-		return currentGenerationCost;
+		return state.get(Column.GenerationCost, slot);
 	}
 
 	public double getCurrentStorageCost() {
-		return currentStorageCost;
+		return state.get(Column.StorageCost, slot);
 	}
 
 	// End of costs
@@ -1138,7 +1091,7 @@ public class Agent implements IDescribable {
 	}
 
 	public double getCurrentDemand() {
-		return currentPowerBoughtFromGrid - currentPowerSoldToGrid;
+		return state.get(Column.PowerBoughtFromGrid, slot) - state.get(Column.PowerSoldToGrid, slot);
 	}
 
 	// end of demand
@@ -1147,7 +1100,7 @@ public class Agent implements IDescribable {
 	 * Neighborhood State
 	 */
 	public double getCurrentNeighborhoodRequest() {
-		return currentNeighborhoodRequest;
+		return state.get(Column.NeighborhoodRequest, slot);
 	}
 	
 	public String getCurrentNeighborhoodRequestLabel() {
@@ -1182,27 +1135,34 @@ public class Agent implements IDescribable {
 	public boolean isSmart() {
 		return smart;
 	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getSlot() {
+		return slot;
+	}
 	
 	private ArrayList<Neighbor> neighborhood;
 	private boolean hasBeenOrdered;
 	
-	private ArrayList<Neighbor> getNeighborhood() {
+	ArrayList<Neighbor> getNeighborhood() {
 		if (neighborhood == null) {
-			neighborhood = new ArrayList<Neighbor>(SmartGridBuilder.getNetwork().getDegree(this));
-			for (Object obj:SmartGridBuilder.getNetwork().getAdjacent(this)) {
-				if (obj instanceof Agent) {
-					neighborhood.add(new Neighbor((Agent)obj, 0));
-				}
+			AdjacencySnapshot adjacency = SmartGridBuilder.getAdjacency();
+			neighborhood = new ArrayList<Neighbor>(adjacency.getDegree(id));
+			for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+				neighborhood.add(new Neighbor(adjacency.getAgent(adjacency.getNeighbor(index)), 0));
 			}
 			Collections.sort(neighborhood);
 			hasBeenOrdered = true;
 		}
 		
 		if (!hasBeenOrdered) {
-			if(SmartGridBuilder.getOrderNeighbors()) {
+			if(config.getOrderNeighbors()) {
 				Collections.sort(neighborhood);
 			} else {
-				HelperFunctions.randomizeList(neighborhood);
+				HelperFunctions.randomizeList(neighborhood, random);
 			}
 			hasBeenOrdered = true;
 		}
@@ -0,0 +1,200 @@
+package power.components;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the scalar counters of a group of agents in one primitive array per
+ * counter, indexed by a dense slot that each agent allocates when it is
+ * created. The group totals are kept separately for smart and simple agents.
+ *
+ * Per-tick counters are only written during agent execution, which is serial,
+ * and their totals are updated as the agents write them. Level counters are
+ * written in the agent initialization and finalization, which may run in
+ * parallel, so they do not touch shared totals; their totals are recomputed
+ * by refreshLevels() once per tick.
+ */
+public class AgentStateTable {
+
+	public enum Column {
+		SatisfiedLoad(true),
+		SpentGeneration(true),
+		AddedSuspension(true),
+		RemovedSuspension(true),
+		ForcefullySuspendedLoad(true),
+
+		PowerBoughtFromGrid(true),
+		PowerBoughtFromNeighbors(true),
+		PowerSoldToGrid(true),
+		PowerSoldToNeighbors(true),
+		NeighborhoodRequest(true),
+		DumpedPower(true),
+
+		DebitToGrid(true),
+		DebitToNeighbors(true),
+		CreditFromGrid(true),
+		CreditFromNeighbors(true),
+
+		StorageCost(false),
+		GenerationCost(false),
+		SuspendedLoad(false),
+		StoredPower(false),
+		MeanNeighborhoodRequest(false),
+		MaxDemandOfPeriod(false);
+
+		private final boolean perTick;
+
+		private Column(boolean perTick) {
+			this.perTick = perTick;
+		}
+
+		/**
+		 * @return true if the counter is zeroed at the start of each tick
+		 */
+		public boolean isPerTick() {
+			return perTick;
+		}
+	}
+
+	private static final Column[] columnList = Column.values();
+	private static final int initialCapacity = 64;
+
+	private static final int simple = 0;
+	private static final int smart = 1;
+
+	private final double[][] columns;
+	private boolean[] smartSlots;
+	private int size;
+
+	// indexed by partition (simple or smart) and column
+	private final double[][] totals;
+	private final int[] counts;
+
+	public AgentStateTable() {
+		columns = new double[columnList.length][initialCapacity];
+		smartSlots = new boolean[initialCapacity];
+		totals = new double[2][columnList.length];
+		counts = new int[2];
+	}
+
+	/**
+	 * @return a new slot with every counter set to zero
+	 */
+	public int allocate(boolean isSmart) {
+		if (size == columns[0].length) {
+			int capacity = 2 * size;
+			for (int index = 0; index < columns.length; index++) {
+				columns[index] = Arrays.copyOf(columns[index], capacity);
+			}
+			smartSlots = Arrays.copyOf(smartSlots, capacity);
+		}
+		for (int index = 0; index < columns.length; index++) {
+			columns[index][size] = 0;
+		}
+		smartSlots[size] = isSmart;
+		counts[partition(size)]++;
+		return size++;
+	}
+
+	/**
+	 * Slots are handed back in the reverse order of their allocation, the way
+	 * AgentGenerator removes its agents.
+	 */
+	public void release(int slot) {
+		if (slot != size - 1) {
+			System.err.println("Only the last allocated slot can be released: " + slot);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+		int partition = partition(slot);
+		for (int index = 0; index < columns.length; index++) {
+			totals[partition][index] -= columns[index][slot];
+		}
+		counts[partition]--;
+		size--;
+	}
+
+	public void clear() {
+		size = 0;
+		for (int partition = 0; partition < totals.length; partition++) {
+			Arrays.fill(totals[partition], 0);
+			counts[partition] = 0;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double get(Column column, int slot) {
+		return columns[column.ordinal()][slot];
+	}
+
+	public void set(Column column, int slot, double value) {
+		int index = column.ordinal();
+		if (column.isPerTick()) {
+			totals[partition(slot)][index] += value - columns[index][slot];
+		}
+		columns[index][slot] = value;
+	}
+
+	public void add(Column column, int slot, double value) {
+		int index = column.ordinal();
+		if (column.isPerTick()) {
+			totals[partition(slot)][index] += value;
+		}
+		columns[index][slot] += value;
+	}
+
+	/**
+	 * Zeroes the per-tick counters of every slot.
+	 */
+	public void resetTick() {
+		for (Column column : columnList) {
+			if (column.isPerTick()) {
+				int index = column.ordinal();
+				Arrays.fill(columns[index], 0, size, 0);
+				totals[simple][index] = 0;
+				totals[smart][index] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Recomputes the totals of the level counters in one pass per column.
+	 */
+	public void refreshLevels() {
+		for (Column column : columnList) {
+			if (!column.isPerTick()) {
+				int index = column.ordinal();
+				double[] values = columns[index];
+				double simpleSum = 0;
+				double smartSum = 0;
+				for (int slot = 0; slot < size; slot++) {
+					if (smartSlots[slot]) {
+						smartSum += values[slot];
+					} else {
+						simpleSum += values[slot];
+					}
+				}
+				totals[simple][index] = simpleSum;
+				totals[smart][index] = smartSum;
+			}
+		}
+	}
+
+	public double getTotal(Column column) {
+		return totals[simple][column.ordinal()] + totals[smart][column.ordinal()];
+	}
+
+	public double getTotal(Column column, boolean isSmart) {
+		return totals[isSmart ? smart : simple][column.ordinal()];
+	}
+
+	public int getCount(boolean isSmart) {
+		return counts[isSmart ? smart : simple];
+	}
+
+	private int partition(int slot) {
+		return smartSlots[slot] ? smart : simple;
+	}
+}
@@ -1,11 +1,16 @@
 package power.components;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import org.w3c.dom.Node;
 
+import power.SimulationConfig;
+import power.SimulationEngine;
+import power.SimulationInstance;
 import power.SmartGridBuilder;
 import power.components.generators.AgentGenerator;
+import power.components.generators.ReliabilityGenerator;
 import power.distributions.IRandomDistribution;
 import power.distributions.RandomDistribution;
 import power.helpers.AdjustedRunningMax;
@@ -13,11 +18,12 @@ import power.helpers.RunningMean;
 import power.helpers.XmlTools;
 import power.helpers.Computations;
 import power.models.IRandomModel;
+import power.networks.AdjacencySnapshot;
 import power.models.RandomModel;
 import power.tools.Absolute;
 import power.tools.Amplify;
 import power.tools.IDescribable;
-import repast.simphony.engine.schedule.ScheduledMethod;
+import cern.jet.random.Uniform;
 import repast.simphony.essentials.RepastEssentials;
 
 /**
@@ -33,11 +39,18 @@ public class Grid implements IDescribable {
 	// simulation members
 	private final IReliability reliability;
 	private final IRandomDistribution blackoutRadius;
-	private final LinkedList<Agent> blackoutArea;
+	// the stream of the grid, entered while it is built
+	private final Uniform random;
+	// agents by id which are cut off by the current blackout
+	private final BitSet disconnected;
+	private int blackoutAreaSize;
+	private int[] innerFrontier = new int[16];
+	private int[] outerFrontier = new int[16];
 
 	private final IRandomModel randomModel;
 	private final double buyingPriceAdjustment;
 	private final double sellingPriceAdjustment;
+	private final SimulationConfig config;
 
 	// factors
 	private final AdjustedRunningMax demandWindow;
@@ -62,13 +75,33 @@ public class Grid implements IDescribable {
 //	private double predictedBasePriceVisual;
 //	private double predictedMeanBasePriceVisual;
 
-	public static Grid create(Node xml) {
-		IReliability reliability = Reliability.create(xml);
-		IRandomDistribution blackoutRadius = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.BlackoutRadius));
+	/**
+	 * The parsed GridModel node, shared by the runs of the scenario.
+	 */
+	public static final class Spec {
+		private final ReliabilityGenerator reliabilityGenerator;
+		private final RandomDistribution.Spec blackoutRadiusSpec;
+		private final RandomModel.Spec randomModelSpec;
+		private final double priceAdjustment;
+
+		private Spec(Node xml) {
+			reliabilityGenerator = ReliabilityGenerator.compile(xml);
+			blackoutRadiusSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.BlackoutRadius));
+
+			randomModelSpec = RandomModel.Spec.compile(XmlTools.getExactlyOneNode(xml, XmlNode.PowerRateRandomModel));
+			priceAdjustment = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.PriceAdjustment), XmlTools.XmlAttribute.value));
+		}
+
+		public static Spec compile(Node xml) {
+			return new Spec(xml);
+		}
 
-		IRandomModel randomModel = RandomModel.create(XmlTools.getExactlyOneNode(xml, XmlNode.PowerRateRandomModel));
-		double priceAdjustment = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.PriceAdjustment), XmlTools.XmlAttribute.value));
-		return new Grid(randomModel, blackoutRadius, reliability, priceAdjustment);
+		public Grid create() {
+			IReliability reliability = reliabilityGenerator.create();
+			IRandomDistribution blackoutRadius = RandomDistribution.create(blackoutRadiusSpec);
+			IRandomModel randomModel = randomModelSpec.create();
+			return new Grid(randomModel, blackoutRadius, reliability, priceAdjustment);
+		}
 	}
 
 	private Grid(IRandomModel randomModel,
@@ -76,13 +109,15 @@ public class Grid implements IDescribable {
 			IReliability reliability,
 			double priceAdjustment) {
 		this.randomModel = randomModel;
+		this.config = SmartGridBuilder.getConfig();
 		if (reliability == null || blackoutRadius == null) {
 			this.reliability = BlankReliability.getBlankReliability();
 		} else {
 			this.reliability = reliability;
 		}
 		this.blackoutRadius = blackoutRadius;
-		this.blackoutArea = new LinkedList<Agent>();
+		this.random = new Uniform(SimulationInstance.getCurrent().getRandom().getGenerator());
+		this.disconnected = new BitSet();
 
 		this.randomModel.getModel().setSource(this);
 
@@ -231,11 +266,11 @@ public class Grid implements IDescribable {
 		// System.err.println("buyback: " +
 		// SmartGridBuilder.getHourlyGridBuyBack());
 
-		if (currentBoughtPower >= SmartGridBuilder.getHourlyGridBuyBack() || currentBoughtPower >= getPredictedOutflow())
+		if (currentBoughtPower >= config.getHourlyGridBuyBack() || currentBoughtPower >= getPredictedOutflow())
 			return 0.0;
 
-		if (currentBoughtPower + power > SmartGridBuilder.getHourlyGridBuyBack()) {
-			power = SmartGridBuilder.getHourlyGridBuyBack() - currentBoughtPower;
+		if (currentBoughtPower + power > config.getHourlyGridBuyBack()) {
+			power = config.getHourlyGridBuyBack() - currentBoughtPower;
 		}
 
 		if (currentBoughtPower + power > getPredictedOutflow()) {
@@ -261,28 +296,26 @@ public class Grid implements IDescribable {
 
 	// end of transaction methods
 
-	@ScheduledMethod(start = 0, interval = 1, priority = 3)
+	// run by the PhaseRegistry at priority 3
 	public void initialize() {
 		// if (SmartGridBuilder.getEndSimulationTick() > 0 &&
 		// RepastEssentials.GetTickCount() >=
 		// SmartGridBuilder.getEndSimulationTick()) {
 		// System.exit(0);
 		// }
-		if (!blackoutArea.isEmpty() && reliability.isOperational()) {
+		if (blackoutAreaSize > 0 && reliability.isOperational()) {
 			// System.out.println("-Exiting Blackout: " +
 			// RepastEssentials.GetTickCount());
 			// System.out.println();
 
 			// end blackout
-			for (Agent agent : blackoutArea) {
-				agent.reconnectToGrid();
-			}
-			blackoutArea.clear();
-		} else if (blackoutArea.isEmpty() && !reliability.isOperational()) {
+			disconnected.clear();
+			blackoutAreaSize = 0;
+		} else if (blackoutAreaSize == 0 && !reliability.isOperational()) {
 			// System.out.println("+Entering Blackout: " +
 			// RepastEssentials.GetTickCount());
 			startBlackout();
-			if (SmartGridBuilder.getPauseOnBlackout()) {
+			if (config.getPauseOnBlackout() && SimulationEngine.getCurrent() == null) {
 				RepastEssentials.PauseSimulationRun();
 			}
 			// for (Agent agent : blackoutArea) {
@@ -308,43 +341,69 @@ public class Grid implements IDescribable {
 //		predictedMeanBasePriceVisual = priceWindow.getWindowMean();
 	}
 
+	/**
+	 * Disconnects a random agent and every agent within a random radius of it,
+	 * one breadth-first layer of agent ids at a time.
+	 */
 	private void startBlackout() {
-		for (Object obj1 : SmartGridBuilder.getContext().getRandomObjects(Agent.class, 1)) {
-			LinkedList<Agent> innerNeighbors = new LinkedList<Agent>();
-			LinkedList<Agent> outerNeighbors = new LinkedList<Agent>();
-
-			Agent agent = (Agent) obj1;
-			agent.disconnectFromGrid();
-			blackoutArea.add(agent);
-			innerNeighbors.add(agent);
+		AdjacencySnapshot adjacency = SmartGridBuilder.getAdjacency();
+		Agent center = null;
+		while (center == null && adjacency.getCapacity() > 0) {
+			// ids are dense, so an id without an agent is rarely drawn
+			center = adjacency.getAgent(random.nextIntFromTo(0, adjacency.getCapacity() - 1));
+		}
+		if (center != null) {
+			int id = center.getId();
+			disconnected.set(id);
+			blackoutAreaSize++;
+			innerFrontier[0] = id;
+			int innerSize = 1;
 
 			int radius = blackoutRadius.nextInt();
 			for (int current = 0; current < radius; current++) {
-				while (!innerNeighbors.isEmpty()) {
-					agent = innerNeighbors.removeFirst();
-					for (Object obj2 : SmartGridBuilder.getNetwork().getAdjacent(agent)) {
-						if (obj2.getClass() == Agent.class) {
-							Agent neighbor = (Agent) obj2;
-							if (neighbor.isConnectedToGrid()) {
-								neighbor.disconnectFromGrid();
-								blackoutArea.add(neighbor);
-								outerNeighbors.add(neighbor);
+				int outerSize = 0;
+				for (int position = 0; position < innerSize; position++) {
+					id = innerFrontier[position];
+					for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+						int neighbor = adjacency.getNeighbor(index);
+						if (!disconnected.get(neighbor)) {
+							disconnected.set(neighbor);
+							blackoutAreaSize++;
+							if (outerSize == outerFrontier.length) {
+								outerFrontier = Arrays.copyOf(outerFrontier, 2 * outerSize);
 							}
+							outerFrontier[outerSize++] = neighbor;
 						}
 					}
 				}
-				if (outerNeighbors.isEmpty()) {
+				if (outerSize == 0) {
 					return;
 				} else {
-					LinkedList<Agent> neighbors = innerNeighbors;
-					innerNeighbors = outerNeighbors;
-					outerNeighbors = neighbors;
+					int[] frontier = innerFrontier;
+					innerFrontier = outerFrontier;
+					outerFrontier = frontier;
+					innerSize = outerSize;
 				}
 			}
 		}
 	}
 
-	@ScheduledMethod(start = 0, interval = 1, priority = -3)
+	/**
+	 * @return true unless the agent is in the blackout area
+	 */
+	public boolean isConnected(Agent agent) {
+		return !disconnected.get(agent.getId());
+	}
+
+	public int getBlackoutAreaSize() {
+		return blackoutAreaSize;
+	}
+
+	public String getBlackoutAreaSizeLabel() {
+		return "Blackout Area Size";
+	}
+
+	// run by the PhaseRegistry at priority -3
 	public void finalize() {
 		demandWindow.add(getCurrentDemand());
 		outflowWindow.add(getCurrentSoldPower());
@@ -0,0 +1,297 @@
+package power.components;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import power.SmartGridBuilder;
+import power.networks.AdjacencySnapshot;
+
+/**
+ * Clears the neighbor trades of a tick as a double auction instead of letting
+ * every buyer call into its neighbors while it executes. At the end of its
+ * execution every agent posts its bid, the load it still has to cover, and,
+ * when it is willing to sell, its offer: the ration it sells to the
+ * neighborhood in a tick, the reserve it keeps for its own deficit and its
+ * stored power.
+ *
+ * The clearing then makes three passes over the adjacency, each of which only
+ * writes the entries of its own agent and may therefore be split over a
+ * fork-join pool:
+ * <ol>
+ * <li>every bidder counts its neighbors with an offer;</li>
+ * <li>every agent sums the shares of the bids its neighbors direct to it,
+ * each bidder splitting its bid evenly over its neighbors with an offer, or
+ * over all of them when none has one, and sells the requested power up to its
+ * ration and down to its reserve;</li>
+ * <li>every bidder collects the sold part of each of its shares.</li>
+ * </ol>
+ * The sums are taken in the order of the adjacency, so the outcome depends
+ * neither on the execution order nor on the number of workers. Settling the
+ * trades draws the storage of every seller once.
+ *
+ * Unlike direct trading, a bidder does not work through its neighbors by
+ * preference, so the market leaves the neighbor preferences untouched.
+ */
+public class NeighborMarket {
+
+	private Agent[] agents = new Agent[0];
+
+	// order book of the tick, indexed by agent id
+	private double[] bids = new double[0];
+	private boolean[] hasOffer = new boolean[0];
+	private double[] rations = new double[0];
+	private double[] reserves = new double[0];
+	private double[] stored = new double[0];
+
+	// results of the clearing, indexed by agent id
+	private int[] offerCounts = new int[0];
+	private double[] requested = new double[0];
+	private double[] sold = new double[0];
+	private double[] filled = new double[0];
+
+	// agents which posted a bid or an offer in the tick
+	private int[] bidders = new int[16];
+	private int bidderCount;
+	private int[] sellers = new int[16];
+	private int sellerCount;
+
+	private AdjacencySnapshot adjacency;
+
+	public void register(Agent agent) {
+		int id = agent.getId();
+		if (id >= agents.length) {
+			int capacity = Math.max(2 * agents.length, id + 1);
+			agents = Arrays.copyOf(agents, capacity);
+			bids = Arrays.copyOf(bids, capacity);
+			hasOffer = Arrays.copyOf(hasOffer, capacity);
+			rations = Arrays.copyOf(rations, capacity);
+			reserves = Arrays.copyOf(reserves, capacity);
+			stored = Arrays.copyOf(stored, capacity);
+			offerCounts = Arrays.copyOf(offerCounts, capacity);
+			requested = Arrays.copyOf(requested, capacity);
+			sold = Arrays.copyOf(sold, capacity);
+			filled = Arrays.copyOf(filled, capacity);
+		}
+		agents[id] = agent;
+	}
+
+	public void unregister(Agent agent) {
+		agents[agent.getId()] = null;
+	}
+
+	/**
+	 * Posts the request of a buyer for the tick.
+	 */
+	public void bid(Agent buyer, double request) {
+		if (request <= 0)
+			return;
+		int id = buyer.getId();
+		if (bids[id] == 0) {
+			if (bidderCount == bidders.length) {
+				bidders = Arrays.copyOf(bidders, 2 * bidders.length);
+			}
+			bidders[bidderCount++] = id;
+		}
+		bids[id] += request;
+	}
+
+	/**
+	 * Posts the offer of a seller for the tick.
+	 */
+	public void offer(Agent seller, double ration, double reserve, double storedPower) {
+		int id = seller.getId();
+		if (!hasOffer[id]) {
+			if (sellerCount == sellers.length) {
+				sellers = Arrays.copyOf(sellers, 2 * sellers.length);
+			}
+			sellers[sellerCount++] = id;
+			hasOffer[id] = true;
+		}
+		rations[id] = ration;
+		reserves[id] = reserve;
+		stored[id] = storedPower;
+	}
+
+	/**
+	 * @return the part of the bid of the buyer which was filled in the tick
+	 */
+	public double getFilled(Agent buyer) {
+		return filled[buyer.getId()];
+	}
+
+	/**
+	 * @return the power the neighbors of the agent requested from it in the
+	 *         tick
+	 */
+	public double getRequested(Agent seller) {
+		return requested[seller.getId()];
+	}
+
+	/**
+	 * @return the power the agent sold to its neighbors in the tick
+	 */
+	public double getSold(Agent seller) {
+		return sold[seller.getId()];
+	}
+
+	/**
+	 * Matches the bids of the tick against the offers, on the pool when there
+	 * is one and the population spans more than one chunk.
+	 */
+	public void clear(ForkJoinPool pool, int chunkSize) {
+		adjacency = SmartGridBuilder.getAdjacency();
+		int capacity = adjacency.getCapacity();
+		if (pool != null && capacity > chunkSize) {
+			for (int pass = 0; pass < 3; pass++) {
+				pool.invoke(new ClearingTask(this, pass, chunkSize, 0, capacity));
+			}
+		} else {
+			for (int pass = 0; pass < 3; pass++) {
+				run(pass, 0, capacity);
+			}
+		}
+	}
+
+	private void run(int pass, int from, int to) {
+		switch (pass) {
+		case 0:
+			countOffers(from, to);
+			break;
+		case 1:
+			sell(from, to);
+			break;
+		default:
+			fill(from, to);
+			break;
+		}
+	}
+
+	private void countOffers(int from, int to) {
+		for (int id = from; id < to; id++) {
+			int count = 0;
+			if (bids[id] > 0) {
+				for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+					if (hasOffer[adjacency.getNeighbor(index)])
+						count++;
+				}
+			}
+			offerCounts[id] = count;
+		}
+	}
+
+	/**
+	 * @return the share of the bid of the buyer directed to the seller
+	 */
+	private double getShare(int buyerId, int sellerId) {
+		if (offerCounts[buyerId] > 0) {
+			return hasOffer[sellerId] ? bids[buyerId] / offerCounts[buyerId] : 0;
+		}
+		return bids[buyerId] / adjacency.getDegree(buyerId);
+	}
+
+	private void sell(int from, int to) {
+		for (int id = from; id < to; id++) {
+			double request = 0;
+			for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+				int buyerId = adjacency.getNeighbor(index);
+				if (bids[buyerId] > 0) {
+					request += getShare(buyerId, id);
+				}
+			}
+			requested[id] = request;
+
+			double power = 0;
+			if (hasOffer[id] && request > 0) {
+				// the ration and the reserve rules of direct trading
+				power = Math.min(request, Math.min(rations[id], stored[id] - reserves[id]));
+			}
+			sold[id] = Math.max(power, 0);
+		}
+	}
+
+	private void fill(int from, int to) {
+		for (int id = from; id < to; id++) {
+			double power = 0;
+			if (bids[id] > 0 && offerCounts[id] > 0) {
+				for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+					power += getTrade(id, adjacency.getNeighbor(index));
+				}
+			}
+			filled[id] = power;
+		}
+	}
+
+	/**
+	 * @return the power the seller sold to the buyer, its share of the sold
+	 *         power in proportion to the share of the bid
+	 */
+	private double getTrade(int buyerId, int sellerId) {
+		if (sold[sellerId] <= 0)
+			return 0;
+		return getShare(buyerId, sellerId) * sold[sellerId] / requested[sellerId];
+	}
+
+	/**
+	 * Records the trades of the buyer on the edges to its sellers.
+	 */
+	public void recordTrades(Agent buyer) {
+		int id = buyer.getId();
+		if (bids[id] <= 0 || offerCounts[id] == 0)
+			return;
+		for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+			int sellerId = adjacency.getNeighbor(index);
+			double power = getTrade(id, sellerId);
+			if (power > 0) {
+				agents[sellerId].recordNeighborhoodTrade(buyer, power);
+			}
+		}
+	}
+
+	/**
+	 * Empties the order book ahead of the next tick.
+	 */
+	public void reset() {
+		for (int index = 0; index < bidderCount; index++) {
+			bids[bidders[index]] = 0;
+		}
+		for (int index = 0; index < sellerCount; index++) {
+			hasOffer[sellers[index]] = false;
+		}
+		bidderCount = 0;
+		sellerCount = 0;
+		adjacency = null;
+	}
+
+	/**
+	 * Runs one pass of the clearing over a range of agent ids, splitting the
+	 * range until it fits in one chunk.
+	 */
+	private static class ClearingTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final NeighborMarket market;
+		private final int pass;
+		private final int chunkSize;
+		private final int from;
+		private final int to;
+
+		public ClearingTask(NeighborMarket market, int pass, int chunkSize, int from, int to) {
+			this.market = market;
+			this.pass = pass;
+			this.chunkSize = chunkSize;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > chunkSize) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ClearingTask(market, pass, chunkSize, from, middle), new ClearingTask(market, pass, chunkSize, middle, to));
+				return;
+			}
+			market.run(pass, from, to);
+		}
+	}
+}
@@ -1,73 +1,82 @@
 package power.components;
 
-import org.w3c.dom.Node;
-
 import power.SmartGridBuilder;
 import power.distributions.IRandomDistribution;
-import power.distributions.RandomDistribution;
-import power.helpers.XmlTools;
-import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.engine.schedule.ScheduleParameters;
 
 public class Reliability implements IReliability {
 
-	private enum XmlNode {
-		Failure, Repair
-	}
-
 	private final IRandomDistribution failureDistribution;
 	private final IRandomDistribution repairDistribution;
+	private final boolean simulateReliability;
 
+	private boolean operational;
+
+	// the part of the drawn times left over past their last whole tick
 	private double timeToFailure;
 	private double timeToRepair;
 
-	public static IReliability create(Node xml) {
-		if (xml == null)
-			return null;
-
-		IRandomDistribution failureDistribution = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.Failure));
-		IRandomDistribution repairDistribution = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.Repair));
-
-		if (failureDistribution == null || repairDistribution == null) {
-			return BlankReliability.getBlankReliability();
-		} else {
-			return new Reliability(failureDistribution, repairDistribution);
-		}
-	}
+	private long ticksToFailure;
+	private long ticksToRepair;
 
 	public Reliability(IRandomDistribution failureDistribution, IRandomDistribution durationDistribution) {
 		this.failureDistribution = failureDistribution;
 		this.repairDistribution = durationDistribution;
+		this.simulateReliability = SmartGridBuilder.getSimulateReliability();
+		this.operational = !simulateReliability;
 
-		ScheduleParameters scheduleParams = ScheduleParameters.createRepeating(0, 1, ScheduleParameters.FIRST_PRIORITY);
-		RunEnvironment.getInstance().getCurrentSchedule().schedule(scheduleParams, this, "simulate");
+		SmartGridBuilder.getPhaseRegistry().register(this);
 	}
 
 	@Override
 	public boolean isOperational() {
-		if (!SmartGridBuilder.getSimulateReliability())
-			return true;
-		return timeToFailure > 0;
+		return operational;
+	}
+
+	boolean isSimulated() {
+		return simulateReliability;
 	}
 
-	public void simulate() {
-		if (!SmartGridBuilder.getSimulateReliability())
-			return;
-
-		if (timeToFailure > 0) {
-			timeToFailure--;
-		} else {
-			if (timeToRepair > 0) {
-//				System.out.println("Repaining: fail in:" + timeToFailure + ", repair in: " + timeToRepair);
-				timeToRepair--;
-			} else {
-				timeToFailure += failureDistribution.nextDouble();
-				timeToRepair += repairDistribution.nextDouble();
-				System.out.println("Reset: fail in:" + timeToFailure + ", repair in: " + timeToRepair);
-			}
-		}
+	/*
+	 * Cycle, run by the ReliabilityScheduler
+	 */
+	void fail() {
+		operational = false;
 	}
 
+	/**
+	 * Draws the next failure and repair times. The component stays up for as
+	 * many ticks as it takes the failure time to count down to zero, then the
+	 * repair time counts down the same way, after which the next cycle is
+	 * drawn.
+	 */
+	void reset() {
+		timeToFailure += failureDistribution.nextDouble();
+		timeToRepair += repairDistribution.nextDouble();
+//		System.out.println("Reset: fail in:" + timeToFailure + ", repair in: " + timeToRepair);
+
+		ticksToFailure = getWholeTicks(timeToFailure);
+		ticksToRepair = getWholeTicks(timeToRepair);
+		timeToFailure -= ticksToFailure;
+		timeToRepair -= ticksToRepair;
+		operational = ticksToFailure > 0;
+	}
+
+	long getTicksToFailure() {
+		return ticksToFailure;
+	}
+
+	long getTicksToRepair() {
+		return ticksToRepair;
+	}
+
+	private static long getWholeTicks(double time) {
+		if (time <= 0)
+			return 0;
+		return (long) Math.min(Math.ceil(time), Integer.MAX_VALUE);
+	}
+
+	// end of cycle
+
 	@Override
 	public String description() {
 		return description(0);
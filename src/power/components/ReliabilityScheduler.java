@@ -0,0 +1,112 @@
+package power.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Runs the failure and repair cycles of every Reliability from a queue of
+ * events ordered by tick, so a tick only costs the state changes that happen
+ * in it. Events of the same tick are handled in the order the reliabilities
+ * were registered, which keeps the order of the random draws.
+ */
+public class ReliabilityScheduler {
+
+	private static final int fail = 0;
+	private static final int reset = 1;
+
+	private final ArrayList<Reliability> reliabilities = new ArrayList<Reliability>();
+
+	// binary heap of events ordered by tick, then by code
+	private long[] ticks = new long[16];
+	private int[] codes = new int[16];
+	private int size;
+
+	private long tick;
+
+	/**
+	 * The first cycle of the reliability is drawn at the next tick.
+	 */
+	public void register(Reliability reliability) {
+		int index = reliabilities.size();
+		reliabilities.add(reliability);
+		if (reliability.isSimulated()) {
+			push(tick, code(index, reset));
+		}
+	}
+
+	/**
+	 * Handles the events of the current tick and moves to the next one.
+	 */
+	public void advance() {
+		while (size > 0 && ticks[0] <= tick) {
+			int code = codes[0];
+			pop();
+
+			Reliability reliability = reliabilities.get(code >> 1);
+			if ((code & 1) == fail) {
+				reliability.fail();
+			} else {
+				reliability.reset();
+				long ticksToFailure = reliability.getTicksToFailure();
+				if (ticksToFailure > 0) {
+					push(tick + ticksToFailure, code(code >> 1, fail));
+				}
+				push(tick + ticksToFailure + reliability.getTicksToRepair() + 1, code(code >> 1, reset));
+			}
+		}
+		tick++;
+	}
+
+	private static int code(int index, int type) {
+		return (index << 1) | type;
+	}
+
+	private boolean isBefore(int first, int second) {
+		return ticks[first] < ticks[second] || (ticks[first] == ticks[second] && codes[first] < codes[second]);
+	}
+
+	private void swap(int first, int second) {
+		long heldTick = ticks[first];
+		ticks[first] = ticks[second];
+		ticks[second] = heldTick;
+		int code = codes[first];
+		codes[first] = codes[second];
+		codes[second] = code;
+	}
+
+	private void push(long eventTick, int code) {
+		if (size == ticks.length) {
+			ticks = Arrays.copyOf(ticks, 2 * size);
+			codes = Arrays.copyOf(codes, 2 * size);
+		}
+		ticks[size] = eventTick;
+		codes[size] = code;
+		int child = size++;
+		while (child > 0) {
+			int parent = (child - 1) >> 1;
+			if (!isBefore(child, parent))
+				break;
+			swap(child, parent);
+			child = parent;
+		}
+	}
+
+	private void pop() {
+		size--;
+		ticks[0] = ticks[size];
+		codes[0] = codes[size];
+		int parent = 0;
+		while (true) {
+			int child = 2 * parent + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && isBefore(child + 1, child)) {
+				child++;
+			}
+			if (!isBefore(child, parent))
+				break;
+			swap(child, parent);
+			parent = child;
+		}
+	}
+}
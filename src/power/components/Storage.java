@@ -1,8 +1,8 @@
 package power.components;
 
+import power.SimulationInstance;
+import power.SmartGridBuilder;
 import power.tools.IDescribable;
-import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.engine.schedule.ScheduleParameters;
 
 /**
  * @author That
@@ -10,7 +10,6 @@ import repast.simphony.engine.schedule.ScheduleParameters;
  */
 public class Storage implements IDescribable {
 
-	private static Storage defaulStorage = new Storage(BlankReliability.getBlankReliability(), 0, 1, 1, 0);
 	private final IReliability reliability;
 
 	/**
@@ -52,11 +51,7 @@ public class Storage implements IDescribable {
 		this.costFactor = costFactor;
 
 		// Extras
-		ScheduleParameters scheduleParams = ScheduleParameters.createRepeating(0, 1, 1);
-		RunEnvironment.getInstance().getCurrentSchedule().schedule(scheduleParams, this, "initialize");
-
-		scheduleParams = ScheduleParameters.createRepeating(0, 1, -1);
-		RunEnvironment.getInstance().getCurrentSchedule().schedule(scheduleParams, this, "finalize");
+		SmartGridBuilder.getPhaseRegistry().register(this);
 	}
 
 	public void initialize() {
@@ -162,7 +157,7 @@ public class Storage implements IDescribable {
 	}
 
 	public static Storage getDefaultStorage() {
-		return defaulStorage;
+		return SimulationInstance.getCurrent().getDefaultStorage();
 	}
 
 	public double getCurrentPowerAdded() {
@@ -4,13 +4,18 @@ import java.util.LinkedList;
 
 import org.w3c.dom.Node;
 
+import power.SimulationInstance;
+import power.SimulationRandom;
 import power.SmartGridBuilder;
+import power.TickContext;
 import power.components.Grid;
 import power.components.Agent;
+import power.components.AgentStateTable;
+import power.components.AgentStateTable.Column;
 import power.components.IReliability;
 import power.components.Storage;
-import power.distributions.IRandomDistribution;
 import power.distributions.RandomDistribution;
+import power.distributions.RandomStream;
 import power.helpers.AdjustedRunningMax;
 import power.helpers.Computations;
 import power.helpers.RunningMean;
@@ -18,8 +23,7 @@ import power.helpers.XmlTools;
 import power.models.BlankRandomModel;
 import power.models.IRandomModel;
 import power.tools.Absolute;
-import repast.simphony.engine.schedule.ScheduledMethod;
-import repast.simphony.essentials.RepastEssentials;
+import cern.jet.random.engine.RandomEngine;
 
 /**
  * @author That
@@ -41,6 +45,11 @@ public class AgentGenerator implements IGenerator<Agent> {
 		population
 	}
 
+	// the keys of the streams of the parts of an agent
+	private enum Part {
+		Reliability, SuspendableModel, LoadModel, GenerationModel, Storage, Agent
+	}
+
 	private int period;
 
 	private Grid grid;
@@ -52,9 +61,14 @@ public class AgentGenerator implements IGenerator<Agent> {
 	private IGenerator<IRandomModel> loadModelGenerator;
 	private IGenerator<IRandomModel> generationModelGenerator;
 	private StorageGenerator storageGenerator;
-	private IRandomDistribution foresightGenerator;
+	private RandomDistribution.Spec foresightSpec;
+
+	// the stream of the group and the number of agents drawn from it so far
+	private final RandomStream stream;
+	private int createdCount;
 
 	private final LinkedList<Agent> agentList = new LinkedList<Agent>();
+	private final AgentStateTable stateTable = new AgentStateTable();
 
 	// factors
 	private final AdjustedRunningMax demandWindow;
@@ -68,139 +82,188 @@ public class AgentGenerator implements IGenerator<Agent> {
 
 	private Double profitHistory = null;
 
-	public static AgentGenerator create(Node xml) {
-		if (xml == null)
-			return null;
-		String name = XmlTools.getHardAttributeValue(xml, XmlTools.XmlAttribute.name);
-		int population = Integer.parseInt(XmlTools.getHardAttributeValue(xml, XmlAttribute.population));
+	/**
+	 * The parsed AgentGenerator node. Creating the agents of a run builds
+	 * generators from the spec and does no XML work.
+	 */
+	public static final class Spec {
+		private final String name;
+		private final int population;
+
+		private final ReliabilityGenerator reliabilityGenerator;
+		private final RandomModelGenerator.Spec suspendableModelSpec;
+		private final RandomModelGenerator.Spec loadModelSpec;
+		private final RandomModelGenerator.Spec generationModelSpec;
+		private final StorageGenerator.Spec storageSpec;
+		private final RandomDistribution.Spec foresightSpec;
 
-		IGenerator<IReliability> reliabilityGenerator = new ReliabilityGenerator(xml);
-		IGenerator<IRandomModel> suspendableModelGenerator = RandomModelGenerator.create(XmlTools.getUptoOneNode(xml, XmlNode.SuspendableModelGenerator), SmartGridBuilder.getSuspendFactor());
-		IGenerator<IRandomModel> loadModelGenerator = RandomModelGenerator.create(XmlTools.getUptoOneNode(xml, XmlNode.LoadModelGenerator));
-		IGenerator<IRandomModel> generationModelGenerator = RandomModelGenerator.create(XmlTools.getUptoOneNode(xml, XmlNode.GenerationModelGenerator), SmartGridBuilder.getGenerationFactor());
-		StorageGenerator storageGenerator = StorageGenerator.create(XmlTools.getUptoOneNode(xml, XmlNode.StorageGenerator));
-		IRandomDistribution foresightGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.ForesightRandomParameter));
+		private Spec(Node xml) {
+			name = XmlTools.getHardAttributeValue(xml, XmlTools.XmlAttribute.name);
+			population = Integer.parseInt(XmlTools.getHardAttributeValue(xml, XmlAttribute.population));
 
-		return new AgentGenerator(name, population, reliabilityGenerator, suspendableModelGenerator, loadModelGenerator, generationModelGenerator, storageGenerator, foresightGenerator);
+			reliabilityGenerator = ReliabilityGenerator.compile(xml);
+			suspendableModelSpec = RandomModelGenerator.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.SuspendableModelGenerator));
+			loadModelSpec = RandomModelGenerator.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.LoadModelGenerator));
+			generationModelSpec = RandomModelGenerator.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.GenerationModelGenerator));
+			storageSpec = StorageGenerator.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.StorageGenerator));
+			foresightSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.ForesightRandomParameter));
+		}
+
+		public static Spec compile(Node xml) {
+			if (xml == null)
+				return null;
+			return new Spec(xml);
+		}
+
+		/**
+		 * @return a generator of the current simulation, with the suspend and
+		 *         generation factors of its parameters, whose agents draw from
+		 *         children of the stream
+		 */
+		public AgentGenerator create(RandomStream stream) {
+			IGenerator<IRandomModel> suspendableModelGenerator = suspendableModelSpec == null ? null : suspendableModelSpec.create(SmartGridBuilder.getSuspendFactor());
+			IGenerator<IRandomModel> loadModelGenerator = loadModelSpec == null ? null : loadModelSpec.create();
+			IGenerator<IRandomModel> generationModelGenerator = generationModelSpec == null ? null : generationModelSpec.create(SmartGridBuilder.getGenerationFactor());
+			StorageGenerator storageGenerator = storageSpec == null ? null : storageSpec.create();
+
+			return new AgentGenerator(name, population, stream, reliabilityGenerator, suspendableModelGenerator, loadModelGenerator, generationModelGenerator, storageGenerator, foresightSpec);
+		}
 	}
 
 	public AgentGenerator(String name,
 			int population,
+			RandomStream stream,
 			IGenerator<IReliability> reliabilityGenerator,
 			IGenerator<IRandomModel> suspendableModelGenerator,
 			IGenerator<IRandomModel> loadModelGenerator,
 			IGenerator<IRandomModel> generationModelGenerator,
 			StorageGenerator storageGenerator,
-			IRandomDistribution foresightGenerator) {
+			RandomDistribution.Spec foresightSpec) {
 
 		this.grid = SmartGridBuilder.getGrid();
 		this.name = name;
 		this.population = population;
+		this.stream = stream;
 		this.reliabilityGenerator = reliabilityGenerator;
 		this.suspendableModelGenerator = suspendableModelGenerator;
 		this.loadModelGenerator = loadModelGenerator;
 		this.generationModelGenerator = generationModelGenerator;
 		this.storageGenerator = storageGenerator;
-		this.foresightGenerator = foresightGenerator;
+		this.foresightSpec = foresightSpec;
 
 		this.demandWindow = new AdjustedRunningMax(Absolute.getSingleton());
 		this.deficitWindow = new RunningMean();
 	}
 
+	/*
+	 * Creation, each part of an agent drawing from a stream of its own
+	 */
 	@Override
 	public Agent create() {
+		RandomStream agentStream = stream.child(createdCount++);
 
-		IReliability reliability = null;
-		if (reliabilityGenerator != null) {
-			reliability = reliabilityGenerator.create();
-		}
-
-		IRandomModel suspendableModel = null;
-		if (suspendableModelGenerator == null) {
-			suspendableModel = BlankRandomModel.getBlankRandomModel();
-		} else {
-			suspendableModel = suspendableModelGenerator.create();
-		}
-
-		IRandomModel loadModel = null;
-		if (loadModelGenerator == null) {
-			loadModel = BlankRandomModel.getBlankRandomModel();
-		} else {
-			loadModel = loadModelGenerator.create();
-		}
-
-		IRandomModel generationModel = null;
-		if (generationModelGenerator == null) {
-			generationModel = BlankRandomModel.getBlankRandomModel();
-		} else {
-			generationModel = generationModelGenerator.create();
-		}
+		IReliability reliability = createReliability(agentStream);
+		IRandomModel suspendableModel = createModel(suspendableModelGenerator, agentStream, Part.SuspendableModel);
+		IRandomModel loadModel = createModel(loadModelGenerator, agentStream, Part.LoadModel);
+		IRandomModel generationModel = createModel(generationModelGenerator, agentStream, Part.GenerationModel);
 
 		Storage storage = null;
 		if (storageGenerator == null) {
 			storage = Storage.getDefaultStorage();
 		} else {
-			storage = storageGenerator.create();
-		}
-
-		int forsight = 0;
-		if (foresightGenerator != null) {
-			forsight = foresightGenerator.nextInt();
+			SimulationRandom random = SimulationInstance.getCurrent().getRandom();
+			RandomEngine previous = random.enter(agentStream.child(Part.Storage.ordinal()));
+			try {
+				storage = storageGenerator.create();
+			} finally {
+				random.restore(previous);
+			}
 		}
 
-		Agent agent = new Agent(grid, this, reliability, suspendableModel, loadModel, generationModel, storage, forsight, true);
-
-		agentList.add(agent);
-		SmartGridBuilder.getContext().add(agent);
-
-		return agent;
+		return createAgent(agentStream, reliability, suspendableModel, loadModel, generationModel, storage, true);
 	}
 
 	public Agent createSimpleAgent() {
+		RandomStream agentStream = stream.child(createdCount++);
 
-		IReliability reliability = null;
-		if (reliabilityGenerator != null) {
-			reliability = reliabilityGenerator.create();
-		}
+		IReliability reliability = createReliability(agentStream);
+		IRandomModel suspendableModel = createModel(suspendableModelGenerator, agentStream, Part.SuspendableModel);
+		IRandomModel loadModel = createModel(loadModelGenerator, agentStream, Part.LoadModel);
+		IRandomModel generationModel = BlankRandomModel.getBlankRandomModel();
+		Storage storage = Storage.getDefaultStorage();
 
-		IRandomModel suspendableModel = null;
-		if (suspendableModelGenerator == null) {
-			suspendableModel = BlankRandomModel.getBlankRandomModel();
-		} else {
-			suspendableModel = suspendableModelGenerator.create();
-		}
+		return createAgent(agentStream, reliability, suspendableModel, loadModel, generationModel, storage, false);
+	}
 
-		IRandomModel loadModel = null;
-		if (loadModelGenerator == null) {
-			loadModel = BlankRandomModel.getBlankRandomModel();
-		} else {
-			loadModel = loadModelGenerator.create();
+	private IReliability createReliability(RandomStream agentStream) {
+		if (reliabilityGenerator == null)
+			return null;
+		SimulationRandom random = SimulationInstance.getCurrent().getRandom();
+		RandomEngine previous = random.enter(agentStream.child(Part.Reliability.ordinal()));
+		try {
+			return reliabilityGenerator.create();
+		} finally {
+			random.restore(previous);
 		}
+	}
 
-		IRandomModel generationModel = BlankRandomModel.getBlankRandomModel();
-		Storage storage = Storage.getDefaultStorage();
-
-		int forsight = 0;
-		if (foresightGenerator != null) {
-			forsight = foresightGenerator.nextInt();
+	private IRandomModel createModel(IGenerator<IRandomModel> modelGenerator, RandomStream agentStream, Part part) {
+		if (modelGenerator == null)
+			return BlankRandomModel.getBlankRandomModel();
+		SimulationRandom random = SimulationInstance.getCurrent().getRandom();
+		RandomEngine previous = random.enter(agentStream.child(part.ordinal()));
+		try {
+			return modelGenerator.create();
+		} finally {
+			random.restore(previous);
 		}
+	}
 
-		Agent agent = new Agent(grid, this, reliability, suspendableModel, loadModel, generationModel, storage, forsight, false);
+	/**
+	 * Draws the foresight and builds the agent on the stream of the agent
+	 * itself, which the agent keeps for its own draws.
+	 */
+	private Agent createAgent(RandomStream agentStream,
+			IReliability reliability,
+			IRandomModel suspendableModel,
+			IRandomModel loadModel,
+			IRandomModel generationModel,
+			Storage storage,
+			boolean smart) {
+		SimulationRandom random = SimulationInstance.getCurrent().getRandom();
+		RandomEngine previous = random.enter(agentStream.child(Part.Agent.ordinal()));
+		try {
+			int forsight = 0;
+			if (foresightSpec != null) {
+				forsight = foresightSpec.create().nextInt();
+			}
 
-		agentList.add(agent);
-		SmartGridBuilder.getContext().add(agent);
+			Agent agent = new Agent(grid, this, reliability, suspendableModel, loadModel, generationModel, storage, forsight, smart);
 
-		return agent;
+			agentList.add(agent);
+			SmartGridBuilder.getContext().add(agent);
+			SmartGridBuilder.getPhaseRegistry().register(agent);
+
+			return agent;
+		} finally {
+			random.restore(previous);
+		}
 	}
 
+	// end of creation
+
 	public Agent remove() {
 		Agent agent = agentList.removeLast();
+		stateTable.release(agent.getSlot());
+		// unregistered first, so pending trades reach its edges
+		SmartGridBuilder.getPhaseRegistry().unregister(agent);
 		SmartGridBuilder.getContext().remove(agent);
 		return agent;
 	}
 
 	public Agent[] initializeAll() {
 		agentList.clear();
+		stateTable.clear();
 		double smartPopulation = population * SmartGridBuilder.getSmartFraction();
 		double simplePopulation = population - smartPopulation;
 
@@ -220,8 +283,15 @@ public class AgentGenerator implements IGenerator<Agent> {
 		return (Agent[]) agentList.toArray(new Agent[agentList.size()]);
 	}
 
+	/**
+	 * Replaces every agent of the group, releasing the old ones first so the
+	 * new agents do not share their slots.
+	 */
 	public void resetPopulation() {
-		agentList.clear();
+		while (!agentList.isEmpty()) {
+			remove();
+		}
+		stateTable.clear();
 		adjustPopulation();
 	}
 
@@ -252,7 +322,7 @@ public class AgentGenerator implements IGenerator<Agent> {
 		String tabbing = "";
 		if (nestingLevel > 0)
 			tabbing = new String(new char[nestingLevel]).replace("\0", "\t");
-		String str = "AgentGenerator: {\n\t" + tabbing + "name: " + name + "\n\t" + tabbing + "population: " + population + "\n\t" + tabbing + "foresightGenerator: " + (foresightGenerator == null ? "null\n" : foresightGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "generationModelGenerator: " + (generationModelGenerator == null ? "null\n" : generationModelGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "loadModelGenerator: " + (loadModelGenerator == null ? "null\n" : loadModelGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "reliabilityGenerator: " + (reliabilityGenerator == null ? "null\n" : reliabilityGenerator.description(nestingLevel + 1)) + "\n\t" + tabbing + "storageGenerator: " + (storageGenerator == null ? "null\n" : storageGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "suspendableModelGenerator: " + (suspendableModelGenerator == null ? "null\n" : suspendableModelGenerator.description(nestingLevel + 1)) + tabbing + "}\n";
+		String str = "AgentGenerator: {\n\t" + tabbing + "name: " + name + "\n\t" + tabbing + "population: " + population + "\n\t" + tabbing + "foresightSpec: " + (foresightSpec == null ? "null\n" : foresightSpec.description(nestingLevel + 1)) + "\t" + tabbing + "generationModelGenerator: " + (generationModelGenerator == null ? "null\n" : generationModelGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "loadModelGenerator: " + (loadModelGenerator == null ? "null\n" : loadModelGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "reliabilityGenerator: " + (reliabilityGenerator == null ? "null\n" : reliabilityGenerator.description(nestingLevel + 1)) + "\n\t" + tabbing + "storageGenerator: " + (storageGenerator == null ? "null\n" : storageGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "suspendableModelGenerator: " + (suspendableModelGenerator == null ? "null\n" : suspendableModelGenerator.description(nestingLevel + 1)) + tabbing + "}\n";
 		return str;
 	}
 
@@ -279,6 +349,10 @@ public class AgentGenerator implements IGenerator<Agent> {
 		return agentList;
 	}
 
+	public AgentStateTable getStateTable() {
+		return stateTable;
+	}
+
 	/*
 	 * Start of generation methods
 	 */
@@ -322,12 +396,12 @@ public class AgentGenerator implements IGenerator<Agent> {
 		this.reliabilityGenerator = reliabilityGenerator;
 	}
 
-	public IRandomDistribution getForesightGenerator() {
-		return foresightGenerator;
+	public RandomDistribution.Spec getForesightSpec() {
+		return foresightSpec;
 	}
 
-	public void setForesightGenerator(RandomDistribution foresightGenerator) {
-		this.foresightGenerator = foresightGenerator;
+	public void setForesightSpec(RandomDistribution.Spec foresightSpec) {
+		this.foresightSpec = foresightSpec;
 	}
 
 	// end of generation methods
@@ -349,31 +423,30 @@ public class AgentGenerator implements IGenerator<Agent> {
 
 	// end of demand functions
 
-	@ScheduledMethod(start = 0, interval = 1, priority = 2)
+	// run by the PhaseRegistry at priority 2
 	public void initialize() {
-		period = ((int) RepastEssentials.GetTickCount()) % SmartGridBuilder.getPeriod();
-
-		// flush memoirs
-		currentPowerBoughtFromGrid = null;
-		currentPowerSoldToGrid = null;
-		load = null;
-		generation = null;
-		storedPower = null;
-		currentAddedSuspension = null;
-		currentRemovedSuspension = null;
-		suspendedLoad = null;
-		currentNeighborhoodRequest = null;
-		meanNeighborhoodRequest = null;
-		currentPowerSoldToNeighbors = null;
-		currentPowerBoughtFromNeighbors = null;
-		currentProfit = null;
-		maxDemandOfPeriod = null;
+		period = TickContext.getCurrent().getPhase();
 
+		// zeroes the per-tick counters of the agents ahead of their initialization
+		stateTable.resetTick();
+
+		// draws the load and generation of every agent in list order, which
+		// keeps the agent phases free of shared random draws
+		double load = 0;
+		double generation = 0;
+		for (Agent agent : agentList) {
+			load += agent.getLoad();
+			generation += agent.getGeneration();
+		}
+		this.load = load;
+		this.generation = generation;
 		deficitWindow.add(getDeficit());
 	}
 
-	@ScheduledMethod(start = 0, interval = 1, priority = -2)
+	// run by the PhaseRegistry at priority -2
 	public void finalize() {
+		stateTable.refreshLevels();
+
 		profitHistory = Computations.getExponentialAverage(profitHistory, getCurrentProfit());
 
 		demandWindow.add(getCurrentDemand());
@@ -399,17 +472,8 @@ public class AgentGenerator implements IGenerator<Agent> {
 		return demandWindow;
 	}
 
-	private Double maxDemandOfPeriod;
-
 	public double getMaxDemandOfPeriod() {
-		if (maxDemandOfPeriod == null) {
-			double sum = 0;
-			for (Agent agent : agentList) {
-				sum += agent.getMaxDemandOfPeriod();
-			}
-			maxDemandOfPeriod = sum;
-		}
-		return maxDemandOfPeriod;
+		return stateTable.getTotal(Column.MaxDemandOfPeriod);
 	}
 
 	// end of windows
@@ -449,34 +513,16 @@ public class AgentGenerator implements IGenerator<Agent> {
 		return "Diversity factor of " + name;
 	}
 
-	private Double currentPowerBoughtFromGrid;
-
 	public double getCurrentPowerBoughtFromGrid() {
-		if (currentPowerBoughtFromGrid == null) {
-			double sum = 0.0;
-			for (Agent agent : agentList) {
-				sum += agent.getCurrentPowerBoughtFromGrid();
-			}
-			currentPowerBoughtFromGrid = sum;
-		}
-		return currentPowerBoughtFromGrid;
+		return stateTable.getTotal(Column.PowerBoughtFromGrid);
 	}
 
 	public String getCurrentPowerBoughtFromGridLabel() {
 		return "Current power bought from grid by " + name;
 	}
 
-	private Double currentPowerSoldToGrid;
-
 	public double getCurrentPowerSoldToGrid() {
-		if (currentPowerSoldToGrid == null) {
-			double sum = 0.0;
-			for (Agent agent : agentList) {
-				sum += agent.getCurrentPowerSoldToGrid();
-			}
-			currentPowerSoldToGrid = sum;
-		}
-		return currentPowerSoldToGrid;
+		return stateTable.getTotal(Column.PowerSoldToGrid);
 	}
 
 	public String getCurrentPowerSoldToGridLabel() {
@@ -507,16 +553,9 @@ public class AgentGenerator implements IGenerator<Agent> {
 		return "Coefficient of variation for " + name;
 	}
 
-	private Double load;
+	private double load;
 
 	public double getLoad() {
-		if (load == null) {
-			double sum = 0;
-			for (Agent agent : agentList) {
-				sum += agent.getLoad();
-			}
-			load = sum;
-		}
 		return load;
 	}
 
@@ -524,16 +563,9 @@ public class AgentGenerator implements IGenerator<Agent> {
 		return "Load of " + name;
 	}
 
-	private Double generation;
+	private double generation;
 
 	public double getGeneration() {
-		if (generation == null) {
-			double sum = 0;
-			for (Agent agent : agentList) {
-				sum += agent.getGeneration();
-			}
-			generation = sum;
-		}
 		return generation;
 	}
 
@@ -573,185 +605,96 @@ public class AgentGenerator implements IGenerator<Agent> {
 		return "Mean demand of " + name;
 	}
 
-	private Double storedPower;
-
 	public double getStoredPower() {
-		if (storedPower == null) {
-			double sum = 0;
-			for (Agent agent : agentList) {
-				sum += agent.getStoredPower();
-			}
-			storedPower = sum;
-		}
-		return storedPower;
+		return stateTable.getTotal(Column.StoredPower);
 	}
 
 	public String getStoredPowerLabel() {
 		return "Stored power of " + name;
 	}
 
-	private Double currentAddedSuspension;
-
 	public double getCurrentAddedSuspension() {
-		if (currentAddedSuspension == null) {
-			double sum = 0;
-			for (Agent agent : agentList) {
-				sum += agent.getCurrentAddedSuspension();
-			}
-			currentAddedSuspension = sum;
-		}
-		return currentAddedSuspension;
+		return stateTable.getTotal(Column.AddedSuspension);
 	}
 
 	public String getCurrentAddedSuspensionLabel() {
 		return "Load added to suspension by " + name;
 	}
 
-	private Double currentRemovedSuspension;
-
 	public double getCurrentRemovedSuspension() {
-		if (currentRemovedSuspension == null) {
-			double sum = 0;
-			for (Agent agent : agentList) {
-				sum += agent.getCurrentRemovedSuspension();
-			}
-			currentRemovedSuspension = sum;
-		}
-		return currentRemovedSuspension;
+		return stateTable.getTotal(Column.RemovedSuspension);
 	}
 
 	public String getCurrentRemovedSuspensionLabel() {
 		return "Load removed from suspension by " + name;
 	}
 
-	private Double suspendedLoad;
-
 	public double getSuspendedLoad() {
-		if (suspendedLoad == null) {
-			double sum = 0;
-			for (Agent agent : agentList) {
-				sum += agent.getSuspendedLoad();
-			}
-			suspendedLoad = sum;
-		}
-		return suspendedLoad;
+		return stateTable.getTotal(Column.SuspendedLoad);
 	}
 
 	public String getSuspendedLoadLabel() {
 		return "Suspended load of " + name;
 	}
 
-	private Double currentNeighborhoodRequest;
-
 	public double getCurrentNeighborhoodRequest() {
-		if (currentNeighborhoodRequest == null) {
-			double sum = 0.0;
-			for (Agent agent : agentList) {
-				sum += agent.getCurrentNeighborhoodRequest();
-			}
-			currentNeighborhoodRequest = sum;
-		}
-		return currentNeighborhoodRequest;
+		return stateTable.getTotal(Column.NeighborhoodRequest);
 	}
 
 	public String getCurrentNeighborhoodRequestLabel() {
 		return "Current neighborhood requested from " + name;
 	}
 
-	private Double meanNeighborhoodRequest;
-
 	public double getMeanNeighborhoodRequest() {
-		if (meanNeighborhoodRequest == null) {
-			double sum = 0.0;
-			for (Agent agent : agentList) {
-				sum += agent.getMeanNeighborhoodRequest();
-			}
-			meanNeighborhoodRequest = sum;
-		}
-		return meanNeighborhoodRequest;
+		return stateTable.getTotal(Column.MeanNeighborhoodRequest);
 	}
 
 	public String getMeanNeighborhoodRequestLabel() {
 		return "Mean neighborhood requested from " + name;
 	}
 
-	private Double currentPowerSoldToNeighbors;
-
 	public double getCurrentPowerSoldToNeighbors() {
-		if (currentPowerSoldToNeighbors == null) {
-			double sum = 0.0;
-			for (Agent agent : agentList) {
-				sum += agent.getCurrentPowerSoldToNeighbors();
-			}
-			currentPowerSoldToNeighbors = sum;
-		}
-		return currentPowerSoldToNeighbors;
+		return stateTable.getTotal(Column.PowerSoldToNeighbors);
 	}
 
 	public String getCurrentPowerSoldToNeighborsLabel() {
 		return "Current power sold to neighbors by " + name;
 	}
 
-	private Double currentPowerBoughtFromNeighbors;
-
 	public double getCurrentPowerBoughtFromNeighbors() {
-		if (currentPowerBoughtFromNeighbors == null) {
-			double sum = 0.0;
-			for (Agent agent : agentList) {
-				sum += agent.getCurrentPowerBoughtFromNeighbors();
-			}
-			currentPowerBoughtFromNeighbors = sum;
-		}
-		return currentPowerBoughtFromNeighbors;
+		return stateTable.getTotal(Column.PowerBoughtFromNeighbors);
 	}
 
 	public String getCurrentPowerBoughtFromNeighborsLabel() {
 		return "Current power bought from neighbors by " + name;
 	}
 
-	private Double currentProfit;
+	private double getCurrentProfit(boolean isSmart) {
+		return stateTable.getTotal(Column.CreditFromGrid, isSmart) - stateTable.getTotal(Column.DebitToGrid, isSmart)
+				+ stateTable.getTotal(Column.CreditFromNeighbors, isSmart) - stateTable.getTotal(Column.DebitToNeighbors, isSmart)
+				- stateTable.getTotal(Column.GenerationCost, isSmart) - stateTable.getTotal(Column.StorageCost, isSmart);
+	}
 
 	public double getCurrentSimpleProfit() {
-		double sum = 0.0;
-		double population = 0.0;
-		for (Agent agent : agentList) {
-			if (!agent.isSmart()) {
-				sum += agent.getCurrentProfit();
-				population += 1.0;
-			}
-		}
-		if (population > 0.0) {
-			return sum / population;
+		int population = stateTable.getCount(false);
+		if (population > 0) {
+			return getCurrentProfit(false) / population;
 		} else {
 			return 0.0;
 		}
 	}
 
 	public double getCurrentSmartProfit() {
-		double sum = 0.0;
-		double population = 0.0;
-		for (Agent agent : agentList) {
-			if (agent.isSmart()) {
-				sum += agent.getCurrentProfit();
-				population += 1.0;
-			}
-		}
-		if (population > 0.0) {
-			return sum / population;
+		int population = stateTable.getCount(true);
+		if (population > 0) {
+			return getCurrentProfit(true) / population;
 		} else {
 			return 0.0;
 		}
 	}
 
 	public double getCurrentProfit() {
-		if (currentProfit == null) {
-			double sum = 0.0;
-			for (Agent agent : agentList) {
-				sum += agent.getCurrentProfit();
-			}
-			currentProfit = sum;
-		}
-		return currentProfit;
+		return getCurrentProfit(false) + getCurrentProfit(true);
 	}
 
 	public String getCurrentProfitLabel() {
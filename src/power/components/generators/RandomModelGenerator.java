@@ -3,12 +3,10 @@ package power.components.generators;
 import org.w3c.dom.Node;
 
 import power.components.IReliability;
-import power.distributions.IRandomDistribution;
 import power.distributions.RandomDistribution;
 import power.helpers.XmlTools;
 import power.models.IRandomModel;
 import power.models.RandomModel;
-import power.models.cores.IModel;
 import power.models.cores.Model;
 import power.tools.Adjuster;
 import power.tools.IAdjuster;
@@ -18,81 +16,84 @@ public class RandomModelGenerator implements IGenerator<IRandomModel> {
 		Mean, MeanFactor, StandardDeviation, PredictionError, CostFactor, Adjuster
 	}
 
-	private final IModel model;
+	private final Model.Spec modelSpec;
 	private final IGenerator<IReliability> reliabilityGenerator;
-	private final IRandomDistribution meanFactorGenerator;
-	private final IRandomDistribution standardDeviationGenerator;
-	private final IRandomDistribution costFactorGenerator;
+	private final RandomDistribution.Spec meanFactorSpec;
+	private final RandomDistribution.Spec standardDeviationSpec;
+	private final RandomDistribution.Spec costFactorSpec;
 
 	private final IAdjuster adjuster;
 	private final String name;
 	private final double meanFactorAdjuster;
 
-	public static IGenerator<IRandomModel> create(Node xml, double meanFactorAdjuster) {
-		if (xml == null)
-			return null;
-		IModel model = Model.create(XmlTools.getExactlyOneNode(xml, XmlNode.Mean));
-		IGenerator<IReliability> reliabilityGenerator = new ReliabilityGenerator(xml);
-
-		IRandomDistribution meanFactorGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.MeanFactor));
-		IRandomDistribution standardDeviationGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.StandardDeviation));
-		IRandomDistribution costFactorGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.CostFactor));
-
-		IAdjuster adjuster = Adjuster.createAll(XmlTools.getAllNodes(xml, XmlNode.Adjuster));
-		String name = XmlTools.getAttributeValue(xml, XmlTools.XmlAttribute.name);
-		if (name == null)
-			name = xml.getNodeName();
-
-		return new RandomModelGenerator(model, reliabilityGenerator, meanFactorGenerator, standardDeviationGenerator, costFactorGenerator, adjuster, name, meanFactorAdjuster);
-	} 
-	
-	public static IGenerator<IRandomModel> create(Node xml) {
-		if (xml == null)
-			return null;
-		IModel model = Model.create(XmlTools.getExactlyOneNode(xml, XmlNode.Mean));
-		IGenerator<IReliability> reliabilityGenerator = new ReliabilityGenerator(xml);
-
-		IRandomDistribution meanFactorGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.MeanFactor));
-		IRandomDistribution standardDeviationGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.StandardDeviation));
-		IRandomDistribution costFactorGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.CostFactor));
-
-		IAdjuster adjuster = Adjuster.createAll(XmlTools.getAllNodes(xml, XmlNode.Adjuster));
-		String name = XmlTools.getAttributeValue(xml, XmlTools.XmlAttribute.name);
-		if (name == null)
-			name = xml.getNodeName();
-
-		return new RandomModelGenerator(model, reliabilityGenerator, meanFactorGenerator, standardDeviationGenerator, costFactorGenerator, adjuster, name);
-	}
+	/**
+	 * The parsed RandomModelGenerator node, shared by the runs of the scenario.
+	 */
+	public static final class Spec {
+		private final Model.Spec modelSpec;
+		private final ReliabilityGenerator reliabilityGenerator;
+		private final RandomDistribution.Spec meanFactorSpec;
+		private final RandomDistribution.Spec standardDeviationSpec;
+		private final RandomDistribution.Spec costFactorSpec;
+		private final IAdjuster adjuster;
+		private final String name;
+
+		private Spec(Node xml) {
+			modelSpec = Model.compile(XmlTools.getExactlyOneNode(xml, XmlNode.Mean));
+			reliabilityGenerator = ReliabilityGenerator.compile(xml);
+
+			meanFactorSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.MeanFactor));
+			standardDeviationSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.StandardDeviation));
+			costFactorSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.CostFactor));
+
+			adjuster = Adjuster.createAll(XmlTools.getAllNodes(xml, XmlNode.Adjuster));
+			String name = XmlTools.getAttributeValue(xml, XmlTools.XmlAttribute.name);
+			if (name == null)
+				name = xml.getNodeName();
+			this.name = name;
+		}
 
-	public RandomModelGenerator(IModel model,
-			IGenerator<IReliability> reliabilityGenerator,
-			IRandomDistribution meanValueGenerator,
-			IRandomDistribution standardDeviationGenerator,
-			IRandomDistribution costFactorGenerator,
-			IAdjuster adjuster,
-			String name) {
-		this(model, reliabilityGenerator, meanValueGenerator, standardDeviationGenerator, costFactorGenerator, adjuster, name, 1);
+		public static Spec compile(Node xml) {
+			if (xml == null)
+				return null;
+			return new Spec(xml);
+		}
+
+		/**
+		 * @return a generator of the current simulation
+		 */
+		public RandomModelGenerator create(double meanFactorAdjuster) {
+			return new RandomModelGenerator(modelSpec, reliabilityGenerator, meanFactorSpec, standardDeviationSpec, costFactorSpec, adjuster, name, meanFactorAdjuster);
+		}
+
+		public RandomModelGenerator create() {
+			return create(1);
+		}
 	}
-			
-	public RandomModelGenerator(IModel model,
+
+	public RandomModelGenerator(Model.Spec modelSpec,
 			IGenerator<IReliability> reliabilityGenerator,
-			IRandomDistribution meanValueGenerator,
-			IRandomDistribution standardDeviationGenerator,
-			IRandomDistribution costFactorGenerator,
+			RandomDistribution.Spec meanFactorSpec,
+			RandomDistribution.Spec standardDeviationSpec,
+			RandomDistribution.Spec costFactorSpec,
 			IAdjuster adjuster,
 			String name,
 			double meanFactorAdjuster) {
 		this.name = name;
 
-		this.model = model;
+		this.modelSpec = modelSpec;
 		this.reliabilityGenerator = reliabilityGenerator;
-		this.meanFactorGenerator = meanValueGenerator;
-		this.standardDeviationGenerator = standardDeviationGenerator;
-		this.costFactorGenerator = costFactorGenerator;
+		this.meanFactorSpec = meanFactorSpec;
+		this.standardDeviationSpec = standardDeviationSpec;
+		this.costFactorSpec = costFactorSpec;
 		this.adjuster = adjuster;
 		this.meanFactorAdjuster = meanFactorAdjuster;
 	}
 
+	/*
+	 * Every model gets a core and distributions of its own, on the generator
+	 * of the stream entered by the caller
+	 */
 	@Override
 	public IRandomModel create() {
 
@@ -102,21 +103,21 @@ public class RandomModelGenerator implements IGenerator<IRandomModel> {
 		}
 
 		double meanFactor = 1 * meanFactorAdjuster;
-		if (meanFactorGenerator != null) {
-			meanFactor = meanFactorGenerator.nextDouble() * meanFactorAdjuster;
+		if (meanFactorSpec != null) {
+			meanFactor = meanFactorSpec.create().nextDouble() * meanFactorAdjuster;
 		}
 
 		double standardDeviation = 0;
-		if (standardDeviationGenerator != null) {
-			standardDeviation = standardDeviationGenerator.nextDouble();
+		if (standardDeviationSpec != null) {
+			standardDeviation = standardDeviationSpec.create().nextDouble();
 		}
 
 		double costFactor = 0;
-		if (costFactorGenerator != null) {
-			costFactor = costFactorGenerator.nextDouble();
+		if (costFactorSpec != null) {
+			costFactor = costFactorSpec.create().nextDouble();
 		}
 
-		return new RandomModel(model, reliability, meanFactor, standardDeviation, costFactor, adjuster, name);
+		return new RandomModel(modelSpec.create(), reliability, meanFactor, standardDeviation, costFactor, adjuster, name);
 	}
 
 	@Override
@@ -129,7 +130,7 @@ public class RandomModelGenerator implements IGenerator<IRandomModel> {
 		String tabbing = "";
 		if (nestingLevel > 0)
 			tabbing = new String(new char[nestingLevel]).replace("\0", "\t");
-		String str = "RandomModel: {\n\t" + tabbing + "meanFactorGenerator: " + (meanFactorGenerator == null ? "null\n" : meanFactorGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "model: " + (model == null ? "null\n" : model.description(nestingLevel + 1)) + "\t" + tabbing + "reliabilityGenerator: " + (reliabilityGenerator == null ? "null\n" : reliabilityGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "standardDeviationGenerator: " + (standardDeviationGenerator == null ? "null\n" : standardDeviationGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "costFactorGenerator: " + (costFactorGenerator == null ? "null\n" : costFactorGenerator.description(nestingLevel + 1)) + tabbing + "}\n";
+		String str = "RandomModel: {\n\t" + tabbing + "meanFactorSpec: " + (meanFactorSpec == null ? "null\n" : meanFactorSpec.description(nestingLevel + 1)) + "\t" + tabbing + "reliabilityGenerator: " + (reliabilityGenerator == null ? "null\n" : reliabilityGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "standardDeviationSpec: " + (standardDeviationSpec == null ? "null\n" : standardDeviationSpec.description(nestingLevel + 1)) + "\t" + tabbing + "costFactorSpec: " + (costFactorSpec == null ? "null\n" : costFactorSpec.description(nestingLevel + 1)) + tabbing + "}\n";
 		return str;
 	}
 }
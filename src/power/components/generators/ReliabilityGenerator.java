@@ -2,13 +2,37 @@ package power.components.generators;
 
 import org.w3c.dom.Node;
 
+import power.components.BlankReliability;
 import power.components.IReliability;
 import power.components.Reliability;
+import power.distributions.RandomDistribution;
+import power.helpers.XmlTools;
 
+/**
+ * Creates a Reliability with distributions of its own for every component.
+ * The failure and repair distributions are parsed once, so the generator can
+ * be shared by every run of the scenario.
+ */
 public class ReliabilityGenerator implements IGenerator<IReliability> {
-	private Node xml;
-	public ReliabilityGenerator(Node xml) {
-		this.xml = xml;
+	private enum XmlNode {
+		Failure, Repair
+	}
+
+	private final RandomDistribution.Spec failureSpec;
+	private final RandomDistribution.Spec repairSpec;
+
+	public static ReliabilityGenerator compile(Node xml) {
+		if (xml == null)
+			return null;
+
+		RandomDistribution.Spec failureSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.Failure));
+		RandomDistribution.Spec repairSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.Repair));
+		return new ReliabilityGenerator(failureSpec, repairSpec);
+	}
+
+	public ReliabilityGenerator(RandomDistribution.Spec failureSpec, RandomDistribution.Spec repairSpec) {
+		this.failureSpec = failureSpec;
+		this.repairSpec = repairSpec;
 	}
 	
 	@Override
@@ -22,13 +46,17 @@ public class ReliabilityGenerator implements IGenerator<IReliability> {
 		if (nestingLevel > 0)
 			tabbing = new String(new char[nestingLevel]).replace("\0", "\t");
 		String str = "ReliabilityGenerator: {\n\t" + 
-				tabbing + "xml: " + xml.toString() +
+				tabbing + "simulated: " + (failureSpec != null && repairSpec != null) + "\n" +
 				tabbing + "}\n";
 		return str; 
 	}
 	
 	@Override
 	public IReliability create() {
-		return Reliability.create(xml);
+		if (failureSpec == null || repairSpec == null) {
+			return BlankReliability.getBlankReliability();
+		} else {
+			return new Reliability(failureSpec.create(), repairSpec.create());
+		}
 	}
 }
@@ -5,7 +5,6 @@ import org.w3c.dom.Node;
 import power.SmartGridBuilder;
 import power.components.IReliability;
 import power.components.Storage;
-import power.distributions.IRandomDistribution;
 import power.distributions.RandomDistribution;
 import power.helpers.XmlTools;
 import repast.simphony.engine.environment.RunEnvironment;
@@ -16,39 +15,62 @@ public class StorageGenerator implements IGenerator<Storage> {
 	}
 
 	private final IGenerator<IReliability> reliabilityGenerator;
-	private final IRandomDistribution capacityGenerator;
-	private final IRandomDistribution efficiencyGenerator;
-	private final IRandomDistribution retentionGenerator;
-	private final IRandomDistribution costFactorGenerator;
-
-	public static StorageGenerator create(Node xml) {
-		if (xml == null)
-			return null;
-
-		IGenerator<IReliability> reliabilityGenerator = new ReliabilityGenerator(xml);
+	private final RandomDistribution.Spec capacitySpec;
+	private final RandomDistribution.Spec efficiencySpec;
+	private final RandomDistribution.Spec retentionSpec;
+	private final RandomDistribution.Spec costFactorSpec;
+
+	/**
+	 * The parsed StorageGenerator node, shared by the runs of the scenario.
+	 */
+	public static final class Spec {
+		private final ReliabilityGenerator reliabilityGenerator;
+		private final RandomDistribution.Spec capacitySpec;
+		private final RandomDistribution.Spec efficiencySpec;
+		private final RandomDistribution.Spec retentionSpec;
+		private final RandomDistribution.Spec costFactorSpec;
+
+		private Spec(Node xml) {
+			reliabilityGenerator = ReliabilityGenerator.compile(xml);
+
+			capacitySpec = RandomDistribution.Spec.compile(XmlTools.getExactlyOneNode(xml, XmlNode.Capacity));
+			efficiencySpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.Efficiency));
+			retentionSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.Retention));
+			costFactorSpec = RandomDistribution.Spec.compile(XmlTools.getUptoOneNode(xml, XmlNode.CostFactor));
+		}
 
-		IRandomDistribution capacityGenerator = RandomDistribution.create(XmlTools.getExactlyOneNode(xml, XmlNode.Capacity));
-		IRandomDistribution efficiencyGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.Efficiency));
-		IRandomDistribution retentionGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.Retention));
-		IRandomDistribution costFactorGenerator = RandomDistribution.create(XmlTools.getUptoOneNode(xml, XmlNode.CostFactor));
+		public static Spec compile(Node xml) {
+			if (xml == null)
+				return null;
+			return new Spec(xml);
+		}
 
-		return new StorageGenerator(reliabilityGenerator, capacityGenerator, efficiencyGenerator, retentionGenerator, costFactorGenerator);
+		/**
+		 * @return a generator of the current simulation
+		 */
+		public StorageGenerator create() {
+			return new StorageGenerator(reliabilityGenerator, capacitySpec, efficiencySpec, retentionSpec, costFactorSpec);
+		}
 	}
 
 	public StorageGenerator(IGenerator<IReliability> reliabilityGenerator,
-			IRandomDistribution capacityGenerator,
-			IRandomDistribution efficiencyGenerator,
-			IRandomDistribution leakGenerator,
-			IRandomDistribution costFactorGenerator) {
+			RandomDistribution.Spec capacitySpec,
+			RandomDistribution.Spec efficiencySpec,
+			RandomDistribution.Spec retentionSpec,
+			RandomDistribution.Spec costFactorSpec) {
 
 		this.reliabilityGenerator = reliabilityGenerator;
 
-		this.capacityGenerator = capacityGenerator;
-		this.efficiencyGenerator = efficiencyGenerator;
-		this.retentionGenerator = leakGenerator;
-		this.costFactorGenerator = costFactorGenerator;
+		this.capacitySpec = capacitySpec;
+		this.efficiencySpec = efficiencySpec;
+		this.retentionSpec = retentionSpec;
+		this.costFactorSpec = costFactorSpec;
 	}
 
+	/*
+	 * The distributions are created for every storage, on the generator of the
+	 * stream entered by the caller
+	 */
 	@Override
 	public Storage create() {
 
@@ -58,21 +80,21 @@ public class StorageGenerator implements IGenerator<Storage> {
 		}
 
 		double efficiency = 1;
-		if (efficiencyGenerator != null) {
-			efficiency = efficiencyGenerator.nextDouble();
+		if (efficiencySpec != null) {
+			efficiency = efficiencySpec.create().nextDouble();
 		}
 
 		double retention = 1;
-		if (retentionGenerator != null) {
-			retention = retentionGenerator.nextDouble();
+		if (retentionSpec != null) {
+			retention = retentionSpec.create().nextDouble();
 		}
 
 		double costFactor = 0;
-		if (costFactorGenerator != null) {
-			costFactor = costFactorGenerator.nextDouble();
+		if (costFactorSpec != null) {
+			costFactor = costFactorSpec.create().nextDouble();
 		}
 		
-		return new Storage(reliability, SmartGridBuilder.getResourceFactor() * capacityGenerator.nextDouble(), efficiency, retention, costFactor);
+		return new Storage(reliability, SmartGridBuilder.getResourceFactor() * capacitySpec.create().nextDouble(), efficiency, retention, costFactor);
 	}
 
 	@Override
@@ -86,7 +108,7 @@ public class StorageGenerator implements IGenerator<Storage> {
 		String tabbing = "";
 		if (nestingLevel > 0)
 			tabbing = new String(new char[nestingLevel]).replace("\0", "\t");
-		String str = "StorageGenerator: {\n\t" + tabbing + "reliabilityGenerator: " + (reliabilityGenerator == null ? "null\n" : reliabilityGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "capacityGenerator: " + (capacityGenerator == null ? "null\n" : capacityGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "efficiencyGenerator: " + (efficiencyGenerator == null ? "null\n" : efficiencyGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "retentionGenerator: " + (retentionGenerator == null ? "null\n" : retentionGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "costFactorGenerator: " + (costFactorGenerator == null ? "null\n" : costFactorGenerator.description(nestingLevel + 1)) + tabbing + "}\n";
+		String str = "StorageGenerator: {\n\t" + tabbing + "reliabilityGenerator: " + (reliabilityGenerator == null ? "null\n" : reliabilityGenerator.description(nestingLevel + 1)) + "\t" + tabbing + "capacitySpec: " + (capacitySpec == null ? "null\n" : capacitySpec.description(nestingLevel + 1)) + "\t" + tabbing + "efficiencySpec: " + (efficiencySpec == null ? "null\n" : efficiencySpec.description(nestingLevel + 1)) + "\t" + tabbing + "retentionSpec: " + (retentionSpec == null ? "null\n" : retentionSpec.description(nestingLevel + 1)) + "\t" + tabbing + "costFactorSpec: " + (costFactorSpec == null ? "null\n" : costFactorSpec.description(nestingLevel + 1)) + tabbing + "}\n";
 		return str;
 	}
 }
@@ -10,16 +10,16 @@ public class ConstantDistribution implements IRandomDistribution, IDescribable {
 	
 	private final double constant;
 	
-	public static IRandomDistribution create(Node xml) {
-		if (xml == null) {
-			return null;
-		}
+	/**
+	 * @return the value of the Constant node, zero when there is none
+	 */
+	public static double getConstant(Node xml) {
 		Node node = XmlTools.getUptoOneNode(xml, XmlNode.Constant);
 		String attribute = node == null ? null : XmlTools.getAttributeValue(node, XmlTools.XmlAttribute.value);
 		if (node == null || attribute == null) {
-			return new ConstantDistribution(0);
+			return 0;
 		} else {
-			return new ConstantDistribution(Double.parseDouble(attribute));
+			return Double.parseDouble(attribute);
 		}
 	}
 	
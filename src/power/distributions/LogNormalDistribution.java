@@ -1,35 +1,18 @@
 package power.distributions;
 
-import org.w3c.dom.Node;
-
 import cern.jet.random.AbstractDistribution;
+import cern.jet.random.Normal;
 
-import power.helpers.XmlTools;
-import power.tools.Adjuster;
+import power.SimulationInstance;
 import power.tools.IAdjuster;
 import power.tools.IDescribable;
-import repast.simphony.random.RandomHelper;
 
 public class LogNormalDistribution implements IRandomDistribution, IDescribable {
-	private enum XmlNode {
-		Adjuster, Mean, StandardDeviation
-	}
-
 	private final AbstractDistribution abstractDistribution;
 	private final IAdjuster adjuster;
 
-	public static IRandomDistribution create(Node xml) {
-		if (xml == null)
-			return null;
-		IAdjuster adjuster = Adjuster.createAll(XmlTools.getAllNodes(xml, XmlNode.Adjuster));
-		double mean = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Mean), XmlTools.XmlAttribute.value));
-		double standardDeviation = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.StandardDeviation), XmlTools.XmlAttribute.value));
-
-		return new LogNormalDistribution(mean, standardDeviation, adjuster);
-	}
-
 	public LogNormalDistribution(double mean, double standardDeviation, IAdjuster adjuster) {
-		this.abstractDistribution = RandomHelper.createNormal(Math.log(mean), Math.log(standardDeviation));
+		this.abstractDistribution = new Normal(Math.log(mean), Math.log(standardDeviation), SimulationInstance.getCurrent().getRandom().getGenerator());
 		this.adjuster = adjuster;
 	}
 
@@ -0,0 +1,113 @@
+package power.distributions;
+
+import java.util.Arrays;
+
+/**
+ * Standard normal deviates drawn a tick at a time into a buffer, one for each
+ * registered consumer, which reads its own by index. Every consumer has a
+ * SplitMix64 stream of its own, seeded from the stream of its owner, so its
+ * noise depends neither on the order the consumers were registered in nor on
+ * the order they read it.
+ *
+ * The deviates come from Doornik's ZIGNOR variant of the Marsaglia and Tsang
+ * ziggurat.
+ */
+public class NormalNoise {
+	private static final int layers = 128;
+	private static final double tailStart = 3.442619855899;
+	private static final double layerArea = 9.91256303526217e-3;
+	private static final double doubleUnit = 1.0 / (1L << 53);
+
+	// the x coordinate of every layer edge and the ratio of consecutive ones
+	private static final double[] layerX = new double[layers + 1];
+	private static final double[] layerRatio = new double[layers];
+
+	static {
+		double f = Math.exp(-0.5 * tailStart * tailStart);
+		layerX[0] = layerArea / f;
+		layerX[1] = tailStart;
+		layerX[layers] = 0;
+		for (int index = 2; index < layers; index++) {
+			layerX[index] = Math.sqrt(-2 * Math.log(layerArea / layerX[index - 1] + f));
+			f = Math.exp(-0.5 * layerX[index] * layerX[index]);
+		}
+		for (int index = 0; index < layers; index++) {
+			layerRatio[index] = layerX[index + 1] / layerX[index];
+		}
+	}
+
+	// the state of the stream and the deviate of the tick of every consumer
+	private long[] states = new long[0];
+	private double[] values = new double[0];
+	private int count;
+
+	/**
+	 * Adds a consumer, whose first deviate can be read before the next draw.
+	 *
+	 * @return the index of the consumer
+	 */
+	public int register(long seed) {
+		if (count == states.length) {
+			int capacity = Math.max(16, 2 * count);
+			states = Arrays.copyOf(states, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		states[count] = seed;
+		values[count] = nextGaussian(count);
+		return count++;
+	}
+
+	/**
+	 * Replaces the deviate of every consumer.
+	 */
+	public void draw() {
+		for (int index = 0; index < count; index++) {
+			values[index] = nextGaussian(index);
+		}
+	}
+
+	/**
+	 * @return the deviate of the consumer drawn for the current tick
+	 */
+	public double get(int index) {
+		return values[index];
+	}
+
+	private long nextLong(int consumer) {
+		return SplitMix64.mix(states[consumer] += SplitMix64.golden);
+	}
+
+	private double nextDouble(int consumer) {
+		return (nextLong(consumer) >>> 11) * doubleUnit;
+	}
+
+	private double nextGaussian(int consumer) {
+		while (true) {
+			long bits = nextLong(consumer);
+			// the top 53 bits give a uniform from [-1, 1), the low 7 the layer
+			double u = 2 * ((bits >>> 11) * doubleUnit) - 1;
+			int layer = (int) bits & (layers - 1);
+			if (Math.abs(u) < layerRatio[layer])
+				return u * layerX[layer];
+			if (layer == 0)
+				return nextTail(consumer, u < 0);
+
+			double x = u * layerX[layer];
+			double f0 = Math.exp(-0.5 * (layerX[layer] * layerX[layer] - x * x));
+			double f1 = Math.exp(-0.5 * (layerX[layer + 1] * layerX[layer + 1] - x * x));
+			if (f1 + nextDouble(consumer) * (f0 - f1) < 1.0)
+				return x;
+		}
+	}
+
+	private double nextTail(int consumer, boolean negative) {
+		double x;
+		double y;
+		do {
+			// from (0, 1], keeping the logarithms finite
+			x = Math.log(1 - nextDouble(consumer)) / tailStart;
+			y = Math.log(1 - nextDouble(consumer));
+		} while (-2 * y < x * x);
+		return negative ? x - tailStart : tailStart - x;
+	}
+}
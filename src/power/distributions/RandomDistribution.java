@@ -1,16 +1,39 @@
 package power.distributions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.w3c.dom.Node;
 
+import power.SimulationInstance;
 import power.helpers.XmlTools;
 
 import power.tools.Adjuster;
 import power.tools.IAdjuster;
 import power.tools.IDescribable;
-import repast.simphony.random.RandomHelper;
 import cern.jet.random.AbstractDistribution;
+import cern.jet.random.Beta;
+import cern.jet.random.Binomial;
+import cern.jet.random.BreitWigner;
+import cern.jet.random.BreitWignerMeanSquare;
+import cern.jet.random.ChiSquare;
+import cern.jet.random.Empirical;
+import cern.jet.random.EmpiricalWalker;
+import cern.jet.random.Exponential;
+import cern.jet.random.ExponentialPower;
+import cern.jet.random.Gamma;
+import cern.jet.random.HyperGeometric;
+import cern.jet.random.Hyperbolic;
+import cern.jet.random.Logarithmic;
+import cern.jet.random.NegativeBinomial;
+import cern.jet.random.Normal;
+import cern.jet.random.Poisson;
+import cern.jet.random.PoissonSlow;
+import cern.jet.random.StudentT;
+import cern.jet.random.Uniform;
+import cern.jet.random.VonMises;
+import cern.jet.random.Zeta;
+import cern.jet.random.engine.RandomEngine;
 
 public class RandomDistribution implements IRandomDistribution, IDescribable {
 	private enum XmlNode { Adjuster, Alpha, Beta, N, M, P, S, Mean, Gamma, Cut , Freedom , Pdf, InterpolationType, Lambda, Tau , StandardDeviation, Min, Max, Ro, Pk }
@@ -45,127 +68,177 @@ public class RandomDistribution implements IRandomDistribution, IDescribable {
 	private final AbstractDistribution abstractDistribution;
 	private final IAdjuster adjuster;
 	
-	public static IRandomDistribution create(Node xml) {
-		if (xml == null) return null;
-		
-		RandomDistributionType type = XmlTools.getAttributeValue(xml, XmlTools.XmlAttribute.type, RandomDistributionType.class);
-		IAdjuster adjuster = Adjuster.createAll(XmlTools.getAllNodes(xml, XmlNode.Adjuster));
-		switch (type) {
-		case Beta: {
-			double alpha = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Alpha), XmlTools.XmlAttribute.value));
-			double beta = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Beta), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createBeta(alpha, beta), adjuster);
-		}
-		case Binomial: {
-			int n = Integer.parseInt(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.N), XmlTools.XmlAttribute.value));
-			double p = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.P), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createBinomial(n, p), adjuster);
-		}
-		case BreitWigner: {
-			double mean = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Mean), XmlTools.XmlAttribute.value));
-			double gamma = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Gamma), XmlTools.XmlAttribute.value));
-			double cut = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Cut), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createBreitWigner(mean, gamma, cut), adjuster);
-		}
-		case BreitWignerMeanSquare: {
-			double mean = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Mean), XmlTools.XmlAttribute.value));
-			double gamma = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Gamma), XmlTools.XmlAttribute.value));
-			double cut = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Cut), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createBreitWignerMeanSquare(mean, gamma, cut), adjuster);
-		}
-		case ChiSquare: {
-			double freedom = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Freedom), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createChiSquare(freedom), adjuster);
+	/**
+	 * The parsed parameters of a distribution of the scenario. A spec holds no
+	 * random state, so it is shared by the runs of a sweep, each building its
+	 * distributions on its own generator.
+	 */
+	public static final class Spec implements IDescribable {
+		private final RandomDistributionType type;
+		private final double[] parameters;
+		private final IAdjuster adjuster;
+
+		private Spec(RandomDistributionType type, double[] parameters, IAdjuster adjuster) {
+			this.type = type;
+			this.parameters = parameters;
+			this.adjuster = adjuster;
 		}
-		case Empirical: {
-			ArrayList<Node> nodeList = XmlTools.getAllNodes(xml, XmlNode.Pdf);
-			double[] pdf = new double[nodeList.size()];
-			for (int index = 0; index < pdf.length; index++) {
-				pdf[index] = Double.parseDouble(XmlTools.getAttributeValue(nodeList.get(index), XmlTools.XmlAttribute.value));
+
+		public static Spec compile(Node xml) {
+			if (xml == null) return null;
+
+			RandomDistributionType type = XmlTools.getAttributeValue(xml, XmlTools.XmlAttribute.type, RandomDistributionType.class);
+			IAdjuster adjuster = Adjuster.createAll(XmlTools.getAllNodes(xml, XmlNode.Adjuster));
+			switch (type) {
+			case Beta:
+			case Hyperbolic:
+				return new Spec(type, getValues(xml, XmlNode.Alpha, XmlNode.Beta), adjuster);
+			case Binomial:
+			case NegativeBinomial:
+				return new Spec(type, new double[] { getInt(xml, XmlNode.N), getValue(xml, XmlNode.P) }, adjuster);
+			case BreitWigner:
+			case BreitWignerMeanSquare:
+				return new Spec(type, getValues(xml, XmlNode.Mean, XmlNode.Gamma, XmlNode.Cut), adjuster);
+			case ChiSquare:
+			case StudentT:
+			case VonMises:
+				return new Spec(type, getValues(xml, XmlNode.Freedom), adjuster);
+			case Empirical:
+			case EmpiricalWalker: {
+				ArrayList<Node> nodeList = XmlTools.getAllNodes(xml, XmlNode.Pdf);
+				// the interpolation type followed by the pdf
+				double[] parameters = new double[nodeList.size() + 1];
+				parameters[0] = getInt(xml, XmlNode.InterpolationType);
+				for (int index = 0; index < nodeList.size(); index++) {
+					parameters[index + 1] = Double.parseDouble(XmlTools.getAttributeValue(nodeList.get(index), XmlTools.XmlAttribute.value));
+				}
+				return new Spec(type, parameters, adjuster);
 			}
-			int interpolationType = Integer.parseInt(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.InterpolationType), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createEmpirical(pdf, interpolationType));
-		}
-		case EmpiricalWalker: {
-			ArrayList<Node> nodeList = XmlTools.getAllNodes(xml, XmlNode.Pdf);
-			double[] pdf = new double[nodeList.size()];
-			for (int index = 0; index < pdf.length; index++) {
-				pdf[index] = Double.parseDouble(XmlTools.getAttributeValue(nodeList.get(index), XmlTools.XmlAttribute.value));
+			case Exponential:
+				return new Spec(type, getValues(xml, XmlNode.Lambda), adjuster);
+			case ExponentialPower:
+				return new Spec(type, getValues(xml, XmlNode.Tau), adjuster);
+			case Gamma:
+				return new Spec(type, getValues(xml, XmlNode.Alpha, XmlNode.Lambda), adjuster);
+			case HyperGeometric:
+				return new Spec(type, new double[] { getInt(xml, XmlNode.N), getInt(xml, XmlNode.S), getInt(xml, XmlNode.M) }, adjuster);
+			case Logarithmic:
+				return new Spec(type, getValues(xml, XmlNode.P), adjuster);
+			case Normal:
+			case LogNormal:
+				return new Spec(type, getValues(xml, XmlNode.Mean, XmlNode.StandardDeviation), adjuster);
+			case Poisson:
+			case PoissonSlow:
+				return new Spec(type, getValues(xml, XmlNode.Mean), adjuster);
+			case Zeta:
+				return new Spec(type, getValues(xml, XmlNode.Ro, XmlNode.Pk), adjuster);
+			case Constant:
+				return new Spec(type, new double[] { ConstantDistribution.getConstant(xml) }, adjuster);
+			case Uniform:
+			default:
+				return new Spec(RandomDistributionType.Uniform, getValues(xml, XmlNode.Min, XmlNode.Max), adjuster);
 			}
-			int interpolationType = Integer.parseInt(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.InterpolationType), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createEmpiricalWalker(pdf, interpolationType), adjuster);
-		}
-		case Exponential: {
-			double lambda = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Lambda), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createExponential(lambda), adjuster);
-		}
-		case ExponentialPower: {
-			double tau = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Tau), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createExponentialPower(tau), adjuster);
-		}
-		case Gamma: {
-			double alpha = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Alpha), XmlTools.XmlAttribute.value));
-			double lambda = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Lambda), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createGamma(alpha, lambda), adjuster);
-		}
-		case Hyperbolic: {
-			double alpha = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Alpha), XmlTools.XmlAttribute.value));
-			double beta = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Beta), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createHyperbolic(alpha, beta), adjuster);
-		}
-		case HyperGeometric: {
-			int N = Integer.parseInt(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.N), XmlTools.XmlAttribute.value));
-			int s = Integer.parseInt(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.S), XmlTools.XmlAttribute.value));
-			int n = Integer.parseInt(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.M), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createHyperGeometric(N, s, n), adjuster);
 		}
-		case Logarithmic: {
-			double p = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.P), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createLogarithmic(p), adjuster);
-		}
-		case NegativeBinomial: {
-			int n = Integer.parseInt(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.N), XmlTools.XmlAttribute.value));
-			double p = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.P), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createNegativeBinomial(n, p), adjuster);
-		}
-		case Normal: {
-			double mean = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Mean), XmlTools.XmlAttribute.value));
-			double standardDeviation = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.StandardDeviation), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createNormal(mean, standardDeviation), adjuster);
-		}
-		case Poisson: {
-			double mean = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Mean), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createPoisson(mean), adjuster);
-		}
-		case PoissonSlow: {
-			double mean = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Mean), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createPoissonSlow(mean), adjuster);
+
+		@Override
+		public String description() {
+			return description(0);
 		}
-		case StudentT: {
-			double freedom = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Freedom), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createStudentT(freedom), adjuster);
+
+		@Override
+		public String description(int nestingLevel) {
+			String tabbing = "";
+			if (nestingLevel > 0)
+				tabbing = new String(new char[nestingLevel]).replace("\0", "\t");
+			String str = "RandomDistribution.Spec: {\n\t" +
+					tabbing + "type: " + type + "\n\t" +
+					tabbing + "parameters: " + Arrays.toString(parameters) + "\n\t" +
+					tabbing + "adjuster: " + (adjuster == null ? "null\n" : adjuster.description(nestingLevel+1)) +
+					tabbing + "}\n";
+			return str;
 		}
-		case VonMises: {
-			double freedom = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Freedom), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createVonMises(freedom), adjuster);
+
+		private static double getValue(Node xml, XmlNode tag) {
+			return Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, tag), XmlTools.XmlAttribute.value));
 		}
-		case Zeta: {
-			double ro = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Ro), XmlTools.XmlAttribute.value));
-			double pk = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Pk), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createZeta(ro, pk), adjuster);
+
+		private static int getInt(Node xml, XmlNode tag) {
+			return Integer.parseInt(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, tag), XmlTools.XmlAttribute.value));
 		}
-		case Constant: {
-			return ConstantDistribution.create(xml);
+
+		private static double[] getValues(Node xml, XmlNode... tags) {
+			double[] values = new double[tags.length];
+			for (int index = 0; index < tags.length; index++) {
+				values[index] = getValue(xml, tags[index]);
+			}
+			return values;
 		}
-		case LogNormal: {
-			return LogNormalDistribution.create(xml);
+
+		/**
+		 * @return a new distribution on the generator of the current simulation,
+		 *         as RandomHelper does
+		 */
+		public IRandomDistribution create() {
+			RandomEngine generator = SimulationInstance.getCurrent().getRandom().getGenerator();
+			double[] p = parameters;
+			switch (type) {
+			case Beta:
+				return new RandomDistribution(new Beta(p[0], p[1], generator), adjuster);
+			case Binomial:
+				return new RandomDistribution(new Binomial((int) p[0], p[1], generator), adjuster);
+			case BreitWigner:
+				return new RandomDistribution(new BreitWigner(p[0], p[1], p[2], generator), adjuster);
+			case BreitWignerMeanSquare:
+				return new RandomDistribution(new BreitWignerMeanSquare(p[0], p[1], p[2], generator), adjuster);
+			case ChiSquare:
+				return new RandomDistribution(new ChiSquare(p[0], generator), adjuster);
+			case Empirical:
+				return new RandomDistribution(new Empirical(Arrays.copyOfRange(p, 1, p.length), (int) p[0], generator));
+			case EmpiricalWalker:
+				return new RandomDistribution(new EmpiricalWalker(Arrays.copyOfRange(p, 1, p.length), (int) p[0], generator), adjuster);
+			case Exponential:
+				return new RandomDistribution(new Exponential(p[0], generator), adjuster);
+			case ExponentialPower:
+				return new RandomDistribution(new ExponentialPower(p[0], generator), adjuster);
+			case Gamma:
+				return new RandomDistribution(new Gamma(p[0], p[1], generator), adjuster);
+			case Hyperbolic:
+				return new RandomDistribution(new Hyperbolic(p[0], p[1], generator), adjuster);
+			case HyperGeometric:
+				return new RandomDistribution(new HyperGeometric((int) p[0], (int) p[1], (int) p[2], generator), adjuster);
+			case Logarithmic:
+				return new RandomDistribution(new Logarithmic(p[0], generator), adjuster);
+			case NegativeBinomial:
+				return new RandomDistribution(new NegativeBinomial((int) p[0], p[1], generator), adjuster);
+			case Normal:
+				return new RandomDistribution(new Normal(p[0], p[1], generator), adjuster);
+			case Poisson:
+				return new RandomDistribution(new Poisson(p[0], generator), adjuster);
+			case PoissonSlow:
+				return new RandomDistribution(new PoissonSlow(p[0], generator), adjuster);
+			case StudentT:
+				return new RandomDistribution(new StudentT(p[0], generator), adjuster);
+			case VonMises:
+				return new RandomDistribution(new VonMises(p[0], generator), adjuster);
+			case Zeta:
+				return new RandomDistribution(new Zeta(p[0], p[1], generator), adjuster);
+			case Constant:
+				return new ConstantDistribution(p[0]);
+			case LogNormal:
+				return new LogNormalDistribution(p[0], p[1], adjuster);
+			case Uniform:
+			default:
+				return new RandomDistribution(new Uniform(p[0], p[1], generator), adjuster);
+			}
 		}
-		case Uniform:
-		default: {
-			double min = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Min), XmlTools.XmlAttribute.value));
-			double max = Double.parseDouble(XmlTools.getAttributeValue(XmlTools.getExactlyOneNode(xml, XmlNode.Max), XmlTools.XmlAttribute.value));
-			return new RandomDistribution(RandomHelper.createUniform(min, max), adjuster); 
-		} }
+	}
+
+	/**
+	 * @return a new distribution of the spec or null without one
+	 */
+	public static IRandomDistribution create(Spec spec) {
+		if (spec == null) return null;
+		return spec.create();
 	}
 	
 	public RandomDistribution(AbstractDistribution abstractDistribution) {
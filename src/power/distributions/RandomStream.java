@@ -0,0 +1,39 @@
+package power.distributions;
+
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * A node of the seed hierarchy of a simulation: the run seed splits into a
+ * stream per component, which splits into a stream per agent and so on. A
+ * child is derived from its parent's seed and its key alone, so every owner
+ * gets the same stream whatever order or thread the owners are created or run
+ * in.
+ */
+public final class RandomStream {
+	// keeps the key of a child apart from the outputs of its parent's engine
+	private static final long keyOffset = 0x632be59bd9b4e019L;
+
+	private final long seed;
+
+	public RandomStream(long seed) {
+		this.seed = seed;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the stream of the key; distinct keys give distinct streams
+	 */
+	public RandomStream child(long key) {
+		return new RandomStream(SplitMix64.mix(seed ^ SplitMix64.mix(key + keyOffset)));
+	}
+
+	/**
+	 * @return a new engine at the start of the stream
+	 */
+	public RandomEngine createEngine() {
+		return new SplitMixEngine(seed);
+	}
+}
@@ -0,0 +1,34 @@
+package power.distributions;
+
+/**
+ * Steele, Lea and Flood's SplitMix64: a 64 bit state advanced by a constant
+ * and mixed into each output. It is small and fast enough to feed the bulk
+ * draws of a tick.
+ */
+public final class SplitMix64 {
+	static final long golden = 0x9e3779b97f4a7c15L;
+	private static final double doubleUnit = 1.0 / (1L << 53);
+
+	private long state;
+
+	public SplitMix64(long seed) {
+		this.state = seed;
+	}
+
+	public long nextLong() {
+		return mix(state += golden);
+	}
+
+	/**
+	 * @return a uniform value from [0, 1)
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * doubleUnit;
+	}
+
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,46 @@
+package power.distributions;
+
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * A Colt RandomEngine over a SplitMix64 stream, so the Colt distributions can
+ * draw from the streams of a RandomStream hierarchy. It is cheap to create,
+ * which lets every agent and model own one.
+ */
+public class SplitMixEngine extends RandomEngine {
+	private static final long serialVersionUID = 1L;
+	private static final double doubleUnit = 1.0 / (1L << 53);
+
+	private final SplitMix64 random;
+
+	public SplitMixEngine(long seed) {
+		this.random = new SplitMix64(seed);
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (random.nextLong() >>> 32);
+	}
+
+	@Override
+	public long nextLong() {
+		return random.nextLong();
+	}
+
+	/**
+	 * @return a uniform value from (0, 1), which the Colt distributions expect
+	 */
+	@Override
+	public double raw() {
+		long bits;
+		do {
+			bits = random.nextLong() >>> 11;
+		} while (bits == 0);
+		return bits * doubleUnit;
+	}
+
+	@Override
+	public double nextDouble() {
+		return raw();
+	}
+}
@@ -1,18 +1,15 @@
 package power.helpers;
 
-import java.util.Comparator;
-import java.util.PriorityQueue;
-
 import org.apache.commons.lang.NullArgumentException;
 
-import power.SmartGridBuilder;
 import power.tools.IAdjuster;
+import power.tools.MonotonicMaxQueue;
 import repast.simphony.essentials.RepastEssentials;
 
 public class AdjustedRunningMax extends RunningMean {
 
 	protected final IAdjuster maxAdjuster;
-	protected final PriorityQueue<Double> recentMaxHeap;
+	protected final MonotonicMaxQueue recentMax;
 	
 	public AdjustedRunningMax(IAdjuster maxAdjuster) {
 		this(null, maxAdjuster);
@@ -20,18 +17,7 @@ public class AdjustedRunningMax extends RunningMean {
 
 	public AdjustedRunningMax(Integer windowCapacity, IAdjuster maxAdjuster) {
 		super(windowCapacity);
-		recentMaxHeap = new PriorityQueue<Double>(getWindowCapacity() + 1, new Comparator<Double>() {
-			@Override
-			public int compare(Double o1, Double o2) {
-				if (o1 > o2) {
-					return -1;
-				} else if (o1 < o2) {
-					return 1;
-				} else {
-					return 0;
-				}
-			}
-		});
+		recentMax = new MonotonicMaxQueue(periodLength + 1);
 		if (maxAdjuster == null) {
 			throw new NullArgumentException("maxAdjuster");
 		} else {
@@ -42,15 +28,13 @@ public class AdjustedRunningMax extends RunningMean {
 	@Override
 	public void add(double value) {
 		window.add(value);
-		recentMaxHeap.add(maxAdjuster.adjust(value));
+		recentMax.add(maxAdjuster.adjust(value));
 
 		periodicSumList[getPeriod()] += value;
 
-		if (window.size() > SmartGridBuilder.getPeriod()) {
-			double leaving = window.get(window.size() - SmartGridBuilder.getPeriod() - 1);
+		if (window.size() > periodLength) {
+			double leaving = window.get(window.size() - periodLength - 1);
 			recentSum += value - leaving;
-			recentMaxHeap.remove(maxAdjuster.adjust(leaving));
-
 		} else {
 			recentSum += value;
 		}
@@ -59,22 +43,22 @@ public class AdjustedRunningMax extends RunningMean {
 
 		while (window.size() > getWindowCapacity()) {
 			value = window.remove();
-			if (window.size() < SmartGridBuilder.getPeriod()) {
+			if (window.size() < periodLength) {
 				recentSum -= value;
-				recentMaxHeap.remove(maxAdjuster.adjust(value));
 			}
 
-//			periodicSumList[(window.size() + getPeriod()) % SmartGridBuilder.getPeriod()] -= value;
-			periodicSumList[(SmartGridBuilder.getPeriod() + (getPeriod() - window.size()) % SmartGridBuilder.getPeriod()) % SmartGridBuilder.getPeriod()] -= value;
+//			periodicSumList[(window.size() + getPeriod()) % periodLength] -= value;
+			periodicSumList[(periodLength + (getPeriod() - window.size()) % periodLength) % periodLength] -= value;
 			windowSum -= value;
 		}
+		recentMax.retain(getRecentSize());
 	}
 
 	public double getRecentMax() {
-		if (recentMaxHeap.isEmpty()) {
+		if (recentMax.isEmpty()) {
 			return 0;
 		} else {
-			return recentMaxHeap.peek();
+			return recentMax.getMax();
 		}
 	}
 }
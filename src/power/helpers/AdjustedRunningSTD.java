@@ -1,6 +1,5 @@
 package power.helpers;
 
-import power.SmartGridBuilder;
 import power.tools.Adjuster;
 import repast.simphony.essentials.RepastEssentials;
 
@@ -15,15 +14,14 @@ public class AdjustedRunningSTD extends AdjustedRunningMax {
 	@Override
 	public void add(double value) {
 		window.add(value);
-		recentMaxHeap.add(maxAdjuster.adjust(value));
+		recentMax.add(maxAdjuster.adjust(value));
 
 		periodicSumList[getPeriod()] += value;
 
-		if (window.size() > SmartGridBuilder.getPeriod()) {
-			double leaving = window.get(window.size() - SmartGridBuilder.getPeriod() - 1);
+		if (window.size() > periodLength) {
+			double leaving = window.get(window.size() - periodLength - 1);
 			recentSum += value - leaving;
 			recentSquaredSum += value * value - leaving * leaving;
-			recentMaxHeap.remove(maxAdjuster.adjust(leaving));
 		} else {
 			recentSum += value;
 			recentSquaredSum += value * value;
@@ -32,19 +30,19 @@ public class AdjustedRunningSTD extends AdjustedRunningMax {
 		windowSum += value;
 		windowSquaredSum += value * value;
 
-		while (window.size() > SmartGridBuilder.getWindowSize()) {
+		while (window.size() > windowCapacity) {
 			value = window.remove();
-			if (window.size() < SmartGridBuilder.getPeriod()) {
+			if (window.size() < periodLength) {
 				recentSum -= value;
 				recentSquaredSum -= value * value;
-				recentMaxHeap.remove(maxAdjuster.adjust(value));
 			}
 
-//			periodicSumList[(window.size() + getPeriod()) % SmartGridBuilder.getPeriod()] -= value;
-			periodicSumList[(SmartGridBuilder.getPeriod() + (getPeriod() - window.size()) % SmartGridBuilder.getPeriod()) % SmartGridBuilder.getPeriod()] -= value;
+//			periodicSumList[(window.size() + getPeriod()) % periodLength] -= value;
+			periodicSumList[(periodLength + (getPeriod() - window.size()) % periodLength) % periodLength] -= value;
 			windowSum -= value;
 			windowSquaredSum -= value * value;
 		}
+		recentMax.retain(getRecentSize());
 	}
 	public double getRecentVatiance() {
 		int sampeCount = getRecentSize();
@@ -0,0 +1,79 @@
+package power.helpers;
+
+/**
+ * The areas between a forecast profile and a baseline over the foresight of
+ * an agent, all computed in one pass. Under areas add up how far the profile
+ * falls below the baseline and over areas how far it rises above it. The
+ * local areas stop at the first step which is not under (or over) the
+ * baseline, and the dynamic areas are the largest running sum.
+ */
+public class ForecastAreas {
+	private double under;
+	private double over;
+	private double localUnder;
+	private double localOver;
+	private double dynamicUnder;
+	private double dynamicOver;
+
+	public void compute(double[] profile, int count, double baseline) {
+		under = 0;
+		over = 0;
+		localUnder = 0;
+		localOver = 0;
+		dynamicUnder = 0;
+		dynamicOver = 0;
+
+		boolean isLocalUnder = true;
+		boolean isLocalOver = true;
+		for (int future = 0; future < count; future++) {
+			double difference = baseline - profile[future];
+			double underValue = difference > 0 ? difference : 0.0;
+			double overValue = difference < 0 ? -difference : 0.0;
+
+			under += underValue;
+			over += overValue;
+
+			if (isLocalUnder && underValue > 0) {
+				localUnder += underValue;
+			} else {
+				isLocalUnder = false;
+			}
+			if (isLocalOver && overValue > 0) {
+				localOver += overValue;
+			} else {
+				isLocalOver = false;
+			}
+
+			if (under > dynamicUnder) {
+				dynamicUnder = under;
+			}
+			if (over > dynamicOver) {
+				dynamicOver = over;
+			}
+		}
+	}
+
+	public double getUnder() {
+		return under;
+	}
+
+	public double getOver() {
+		return over;
+	}
+
+	public double getLocalUnder() {
+		return localUnder;
+	}
+
+	public double getLocalOver() {
+		return localOver;
+	}
+
+	public double getDynamicUnder() {
+		return dynamicUnder;
+	}
+
+	public double getDynamicOver() {
+		return dynamicOver;
+	}
+}
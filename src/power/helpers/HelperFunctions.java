@@ -2,17 +2,32 @@ package power.helpers;
 
 import java.util.List;
 
-import repast.simphony.random.RandomHelper;
+import power.SimulationInstance;
+import power.SimulationRandom;
+import cern.jet.random.Uniform;
 
 public class HelperFunctions {
 	public static <T> void randomizeList(List<T> list) {
+		SimulationRandom random = SimulationInstance.getCurrent().getRandom();
 		for (int index = list.size() - 1; index >= 0; index--) {
-			int random = RandomHelper.nextIntFromTo(0, index);
-			T neighbor = list.get(random);
-			if (random != index) {
-				list.set(random, list.get(index));
-				list.set(index, neighbor);
-			}
+			swap(list, random.nextIntFromTo(0, index), index);
+		}
+	}
+
+	/**
+	 * Shuffles the list with a stream of the caller's own.
+	 */
+	public static <T> void randomizeList(List<T> list, Uniform uniform) {
+		for (int index = list.size() - 1; index >= 0; index--) {
+			swap(list, uniform.nextIntFromTo(0, index), index);
+		}
+	}
+
+	private static <T> void swap(List<T> list, int random, int index) {
+		T neighbor = list.get(random);
+		if (random != index) {
+			list.set(random, list.get(index));
+			list.set(index, neighbor);
 		}
 	}
 }
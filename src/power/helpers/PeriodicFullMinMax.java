@@ -3,7 +3,6 @@ package power.helpers;
 import java.util.Comparator;
 import java.util.PriorityQueue;
 
-import power.SmartGridBuilder;
 import repast.simphony.essentials.RepastEssentials;
 
 public class PeriodicFullMinMax extends RunningMean {
@@ -21,8 +20,8 @@ public class PeriodicFullMinMax extends RunningMean {
 		window.add(value);
 		periodicSumList[getPeriod()] += value;
 		
-		if (window.size() > SmartGridBuilder.getPeriod()) {
-			double leaving = window.get(window.size() - SmartGridBuilder.getPeriod() - 1);
+		if (window.size() > periodLength) {
+			double leaving = window.get(window.size() - periodLength - 1);
 			recentSum += value - leaving;
 		} else {
 			recentSum += value;
@@ -32,11 +31,11 @@ public class PeriodicFullMinMax extends RunningMean {
 
 		while (window.size() > getWindowCapacity()) {
 			value = window.remove();
-			if (window.size() < SmartGridBuilder.getPeriod()) {
+			if (window.size() < periodLength) {
 				recentSum -= value;
 			}
 
-			periodicSumList[(SmartGridBuilder.getPeriod() + (getPeriod() - window.size()) % SmartGridBuilder.getPeriod()) % SmartGridBuilder.getPeriod()] -= value;
+			periodicSumList[(periodLength + (getPeriod() - window.size()) % periodLength) % periodLength] -= value;
 			windowSum -= value;
 		}
 	}
@@ -1,14 +1,11 @@
 package power.helpers;
 
-import java.util.Comparator;
-import java.util.PriorityQueue;
-
-import power.SmartGridBuilder;
+import power.tools.MonotonicMaxQueue;
 import repast.simphony.essentials.RepastEssentials;
 
 public class RunningMax extends RunningMean {
 
-	protected final PriorityQueue<Double> recentMaxHeap;
+	protected final MonotonicMaxQueue recentMax;
 
 	public RunningMax() {
 		this(null);
@@ -16,32 +13,19 @@ public class RunningMax extends RunningMean {
 	
 	public RunningMax(Integer windowCapacity) {
 		super(windowCapacity);
-		recentMaxHeap = new PriorityQueue<Double>(getWindowCapacity() + 1, new Comparator<Double>() {
-			@Override
-			public int compare(Double o1, Double o2) {
-				if (o1 > o2) {
-					return -1;
-				} else if (o1 < o2) {
-					return 1;
-				} else {
-					return 0;
-				}
-			}
-		});
+		recentMax = new MonotonicMaxQueue(periodLength + 1);
 	}
 
 	@Override
 	public void add(double value) {
 		window.add(value);
-		recentMaxHeap.add(value);
+		recentMax.add(value);
 
 		periodicSumList[getPeriod()] += value;
 
-		if (window.size() > SmartGridBuilder.getPeriod()) {
-			double leaving = window.get(window.size() - SmartGridBuilder.getPeriod() - 1);
+		if (window.size() > periodLength) {
+			double leaving = window.get(window.size() - periodLength - 1);
 			recentSum += value - leaving;
-			recentMaxHeap.remove(leaving);
-
 		} else {
 			recentSum += value;
 		}
@@ -50,21 +34,21 @@ public class RunningMax extends RunningMean {
 
 		while (window.size() > getWindowCapacity()) {
 			value = window.remove();
-			if (window.size() < SmartGridBuilder.getPeriod()) {
+			if (window.size() < periodLength) {
 				recentSum -= value;
-				recentMaxHeap.remove(value);
 			}
 
-			periodicSumList[(SmartGridBuilder.getPeriod() + (getPeriod() - window.size()) % SmartGridBuilder.getPeriod()) % SmartGridBuilder.getPeriod()] -= value;
+			periodicSumList[(periodLength + (getPeriod() - window.size()) % periodLength) % periodLength] -= value;
 			windowSum -= value;
 		}
+		recentMax.retain(getRecentSize());
 	}
 
 	public double getRecentMax() {
-		if (recentMaxHeap.isEmpty()) {
+		if (recentMax.isEmpty()) {
 			return 0;
 		} else {
-			return recentMaxHeap.peek();
+			return recentMax.getMax();
 		}
 	}
 }
@@ -1,17 +1,18 @@
 package power.helpers;
 
 import power.SmartGridBuilder;
-import power.tools.CycleQueue;
+import power.TickContext;
+import power.tools.DoubleRingBuffer;
 import power.tools.IAdjuster;
-import repast.simphony.essentials.RepastEssentials;
 
 public class RunningMean {
 	protected final double[] periodicSumList;
 	protected double recentSum;
 	protected double windowSum;
-	protected Integer windowCapacity;
+	protected final int windowCapacity;
+	protected final int periodLength;
 
-	protected final CycleQueue<Double> window;
+	protected final DoubleRingBuffer window;
 
 	public RunningMean() {
 		this(null);
@@ -23,9 +24,14 @@ public class RunningMean {
 //	}
 
 	public RunningMean(Integer windowCapacity) {
-		this.windowCapacity = windowCapacity;
-		window = new CycleQueue<Double>(getWindowCapacity() + 1);
-		periodicSumList = new double[(int) SmartGridBuilder.getPeriod()];
+		if (windowCapacity == null) {
+			this.windowCapacity = SmartGridBuilder.getWindowSize();
+		} else {
+			this.windowCapacity = windowCapacity;
+		}
+		this.periodLength = SmartGridBuilder.getPeriod();
+		window = new DoubleRingBuffer(this.windowCapacity + 1);
+		periodicSumList = new double[periodLength];
 		clearCache();
 	}
 
@@ -38,8 +44,8 @@ public class RunningMean {
 
 		periodicSumList[getPeriod()] += value;
 
-		if (window.size() > SmartGridBuilder.getPeriod()) {
-			recentSum += value - window.get(window.size() - SmartGridBuilder.getPeriod() - 1);
+		if (window.size() > periodLength) {
+			recentSum += value - window.get(window.size() - periodLength - 1);
 		} else {
 			recentSum += value;
 		}
@@ -56,11 +62,11 @@ public class RunningMean {
 		
 		while (window.size() > getWindowCapacity()) {
 			value = window.remove();
-			if (window.size() < SmartGridBuilder.getPeriod()) {
+			if (window.size() < periodLength) {
 				recentSum -= value;
 			}
 
-			periodicSumList[(SmartGridBuilder.getPeriod() + (getPeriod() - window.size()) % SmartGridBuilder.getPeriod()) % SmartGridBuilder.getPeriod()] -= value;
+			periodicSumList[(periodLength + (getPeriod() - window.size()) % periodLength) % periodLength] -= value;
 			windowSum -= value;
 			
 //			if (test) {
@@ -77,22 +83,39 @@ public class RunningMean {
 	}
 
 	public double getPeriodMean(int foresight) {
-		foresight = foresight % SmartGridBuilder.getPeriod();
-		int numberOfValues = (window.size() + (foresight - SmartGridBuilder.getPeriod()) % SmartGridBuilder.getPeriod() - 1) / SmartGridBuilder.getPeriod() + 1;
-		int index = (getPeriod() + foresight) % SmartGridBuilder.getPeriod();
+		foresight = foresight % periodLength;
+		int numberOfValues = (window.size() + (foresight - periodLength) % periodLength - 1) / periodLength + 1;
+		int index = (getPeriod() + foresight) % periodLength;
 		return periodicSumList[index] / numberOfValues;
 	}
 
+	/**
+	 * Writes getPeriodMean(foresight) for every foresight below count into
+	 * target, computing the phase of the tick only once.
+	 */
+	public void fillPeriodMeans(double[] target, int count) {
+		int phase = getPeriod();
+		for (int foresight = 0; foresight < count; foresight++) {
+			int offset = foresight % periodLength;
+			int numberOfValues = (window.size() + (offset - periodLength) % periodLength - 1) / periodLength + 1;
+			int index = phase + offset;
+			if (index >= periodLength) {
+				index -= periodLength;
+			}
+			target[foresight] = periodicSumList[index] / numberOfValues;
+		}
+	}
+
 	public double getRecentSum() {
 		return recentSum;
 	}
 
 	public double getRecentMean() {
 		if (window.size() > 0) {
-			if (window.size() < SmartGridBuilder.getPeriod()) {
+			if (window.size() < periodLength) {
 				return recentSum / window.size();
 			} else {
-				return recentSum / SmartGridBuilder.getPeriod();
+				return recentSum / periodLength;
 			}
 		} else {
 			return 0;
@@ -108,7 +131,7 @@ public class RunningMean {
 	}
 
 	public double getMean(int size) {
-		if (size == SmartGridBuilder.getPeriod() || (window.size() < SmartGridBuilder.getPeriod() && size == window.size())) {
+		if (size == periodLength || (window.size() < periodLength && size == window.size())) {
 			return getRecentMean();
 		} else if (size == getWindowCapacity() || (window.size() < getWindowCapacity() && size == window.size())) {
 			return getWindowMean();
@@ -155,7 +178,7 @@ public class RunningMean {
 
 	protected double recomputePeriodicSum(int foresight) {
 		double sum = 0;
-		for (int index = window.size() + (foresight - SmartGridBuilder.getPeriod()) % SmartGridBuilder.getPeriod() - 1; index >= 0; index -= (int) SmartGridBuilder.getPeriod()) {
+		for (int index = window.size() + (foresight - periodLength) % periodLength - 1; index >= 0; index -= periodLength) {
 			sum += window.get(index);
 		}
 		return sum;
@@ -177,7 +200,7 @@ public class RunningMean {
 		}
 	}
 
-	public CycleQueue<Double> getWindow() {
+	public DoubleRingBuffer getWindow() {
 		return window;
 	}
 
@@ -186,26 +209,22 @@ public class RunningMean {
 	}
 
 	public int getRecentSize() {
-		if (window.size() < SmartGridBuilder.getPeriod()) {
+		if (window.size() < periodLength) {
 			return window.size();
 		} else {
-			return SmartGridBuilder.getPeriod();
+			return periodLength;
 		}
 	}
 
 	public int getWindowCapacity() {
-		if (windowCapacity == null) {
-			return SmartGridBuilder.getWindowSize();
-		} else {
-			return windowCapacity;
-		}
+		return windowCapacity;
 	}
 	
 	public int getPeriod() {
-		return (int) RepastEssentials.GetTickCount() % SmartGridBuilder.getPeriod();
+		return TickContext.getCurrent().getPhase();
 	}
 	
-	public Double getWindowValue(int index) {
+	public double getWindowValue(int index) {
 		return window.get(index);
 	}
 	
@@ -1,6 +1,5 @@
 package power.helpers;
 
-import power.SmartGridBuilder;
 import power.tools.Adjuster;
 import repast.simphony.essentials.RepastEssentials;
 
@@ -11,15 +10,14 @@ public class RunningSTD extends RunningMax {
 	@Override
 	public void add(double value) {
 		window.add(value);
-		recentMaxHeap.add(value);
+		recentMax.add(value);
 
 		periodicSumList[getPeriod()] += value;
 
-		if (window.size() > SmartGridBuilder.getPeriod()) {
-			double leaving = window.get(window.size() - SmartGridBuilder.getPeriod() - 1);
+		if (window.size() > periodLength) {
+			double leaving = window.get(window.size() - periodLength - 1);
 			recentSum += value - leaving;
 			recentSquaredSum += value * value - leaving * leaving;
-			recentMaxHeap.remove(window.get(window.size() - SmartGridBuilder.getPeriod() - 1));
 		} else {
 			recentSum += value;
 			recentSquaredSum += value * value;
@@ -28,18 +26,18 @@ public class RunningSTD extends RunningMax {
 		windowSum += value;
 		windowSquaredSum += value * value;
 
-		while (window.size() > SmartGridBuilder.getWindowSize()) {
+		while (window.size() > windowCapacity) {
 			value = window.remove();
-			if (window.size() < SmartGridBuilder.getPeriod()) {
+			if (window.size() < periodLength) {
 				recentSum -= value;
 				recentSquaredSum -= value * value;
-				recentMaxHeap.remove(value);
 			}
 
-			periodicSumList[(SmartGridBuilder.getPeriod() + (getPeriod() - window.size()) % SmartGridBuilder.getPeriod()) % SmartGridBuilder.getPeriod()] -= value;
+			periodicSumList[(periodLength + (getPeriod() - window.size()) % periodLength) % periodLength] -= value;
 			windowSum -= value;
 			windowSquaredSum -= value * value;
 		}
+		recentMax.retain(getRecentSize());
 	}
 
 	public double getRecentSTD() {
@@ -12,8 +12,8 @@ import com.google.gson.internal.Primitives;
 
 public class XmlTools {
 	
-	public enum XmlAttribute { name, value, type, format }
-	public enum FormatType { json, xml }
+	public enum XmlAttribute { name, value, type, format, file }
+	public enum FormatType { json, xml, binary }
 	
 	public static <T extends Enum<T>> ArrayList<Node> getAllNodes(Node xml, Enum<T> tag) {
 		NodeList results = xml.getChildNodes();
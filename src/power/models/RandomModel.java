@@ -2,19 +2,17 @@ package power.models;
 
 import org.w3c.dom.Node;
 
-import cern.jet.random.Normal;
-
+import power.SimulationInstance;
+import power.SmartGridBuilder;
 import power.components.BlankReliability;
 import power.components.IReliability;
-import power.components.Reliability;
+import power.components.generators.ReliabilityGenerator;
 import power.helpers.XmlTools;
 import power.models.cores.IModel;
 import power.models.cores.Model;
 import power.tools.Adjuster;
 import power.tools.IAdjuster;
 import power.tools.IDescribable;
-import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.engine.schedule.ScheduleParameters;
 import repast.simphony.essentials.RepastEssentials;
 
 public class RandomModel implements IRandomModel {
@@ -32,38 +30,52 @@ public class RandomModel implements IRandomModel {
 
 	protected final String name;
 	protected final double costFactor;
+	private final int noiseIndex;
 
-	public static RandomModel create(Node xml) {
-		if (xml == null)
-			return null;
+	/**
+	 * The parsed RandomModel node, shared by the runs of the scenario.
+	 */
+	public static final class Spec {
+		private final Model.Spec modelSpec;
+		private final ReliabilityGenerator reliabilityGenerator;
+		private final double meanFactor;
+		private final double standardDeviation;
+		private final double costFactor;
+		private final IAdjuster adjuster;
+		private final String name;
 
-		IModel model = Model.create(XmlTools.getExactlyOneNode(xml, RandomModel.XmlNode.Mean));
+		private Spec(Node xml) {
+			modelSpec = Model.compile(XmlTools.getExactlyOneNode(xml, RandomModel.XmlNode.Mean));
 
-		IReliability reliability = Reliability.create(xml);
+			reliabilityGenerator = ReliabilityGenerator.compile(xml);
 
-		double meanFactor = 0;
-		Node node = XmlTools.getUptoOneNode(xml, XmlNode.MeanFactor);
-		if (node != null) {
-			meanFactor = Double.parseDouble(XmlTools.getAttributeValue(node, XmlTools.XmlAttribute.value));
-		}
+			meanFactor = getValue(xml, XmlNode.MeanFactor);
+			standardDeviation = getValue(xml, XmlNode.StandardDeviation);
+			costFactor = getValue(xml, XmlNode.CostFactor);
 
-		double standardDeviation = 0;
-		node = XmlTools.getUptoOneNode(xml, XmlNode.StandardDeviation);
-		if (node != null) {
-			standardDeviation = Double.parseDouble(XmlTools.getAttributeValue(node, XmlTools.XmlAttribute.value));
-		}
+			adjuster = Adjuster.createAll(XmlTools.getAllNodes(xml, XmlNode.Adjuster));
 
-		double costFactor = 0;
-		node = XmlTools.getUptoOneNode(xml, XmlNode.CostFactor);
-		if (node != null) {
-			costFactor = Double.parseDouble(XmlTools.getAttributeValue(node, XmlTools.XmlAttribute.value));
+			name = xml.getNodeName();
 		}
 
-		IAdjuster adjuster = Adjuster.createAll(XmlTools.getAllNodes(xml, XmlNode.Adjuster));
+		public static Spec compile(Node xml) {
+			if (xml == null)
+				return null;
+			return new Spec(xml);
+		}
 
-		String name = xml.getNodeName();
+		private static double getValue(Node xml, XmlNode tag) {
+			Node node = XmlTools.getUptoOneNode(xml, tag);
+			if (node == null)
+				return 0;
+			return Double.parseDouble(XmlTools.getAttributeValue(node, XmlTools.XmlAttribute.value));
+		}
 
-		return new RandomModel(model, reliability, meanFactor, standardDeviation, costFactor, adjuster, name);
+		public RandomModel create() {
+			IModel model = modelSpec.create();
+			IReliability reliability = reliabilityGenerator.create();
+			return new RandomModel(model, reliability, meanFactor, standardDeviation, costFactor, adjuster, name);
+		}
 	}
 
 	public RandomModel(IModel model,
@@ -89,8 +101,7 @@ public class RandomModel implements IRandomModel {
 
 		this.costFactor = costFactor;
 		
-		ScheduleParameters scheduleParams = ScheduleParameters.createRepeating(0, 1, ScheduleParameters.FIRST_PRIORITY);
-		RunEnvironment.getInstance().getCurrentSchedule().schedule(scheduleParams, this, "reset");
+		this.noiseIndex = SmartGridBuilder.getPhaseRegistry().register(this);
 	}
 	
 	public void reset() {
@@ -113,7 +124,8 @@ public class RandomModel implements IRandomModel {
 			return 0.0;
 
 		if (currentValue == null) {
-			currentValue = Normal.staticNextDouble(model.getValue(), standardDeviation) * meanValue;
+			double noise = SimulationInstance.getCurrent().getRandom().getNoise().get(noiseIndex);
+			currentValue = (model.getValue() + standardDeviation * noise) * meanValue;
 
 			if (adjuster != null) {
 				currentValue = adjuster.adjust(currentValue);
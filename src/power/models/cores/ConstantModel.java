@@ -10,14 +10,20 @@ public class ConstantModel extends Model {
 	
 	private final double value;
 
-	public static ConstantModel create(Node xml) {
+	public static Model.Spec compile(Node xml) {
 		double value = 0;
 		Node node = XmlTools.getUptoOneNode(xml, XmlNode.Constant);
 		if (node != null) {
 			value = Double.parseDouble(XmlTools.getAttributeValue(node, XmlTools.XmlAttribute.value));
 		}
 		
-		return new ConstantModel(value);
+		final double constant = value;
+		return new Model.Spec() {
+			@Override
+			public IModel create() {
+				return new ConstantModel(constant);
+			}
+		};
 	}
 	
 	public ConstantModel(double value) {
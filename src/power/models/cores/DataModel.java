@@ -5,36 +5,60 @@ import java.util.Arrays;
 import org.w3c.dom.Node;
 
 import power.SmartGridBuilder;
+import power.TickContext;
 import power.helpers.Computations;
 import power.helpers.XmlTools;
 
 import com.google.gson.Gson;
 
-import repast.simphony.essentials.RepastEssentials;
 
 public class DataModel extends Model {
 	private enum XmlNode { Data }
 	
+	/**
+	 * The key of the series a streaming reader has already parsed for a node
+	 */
+	public static final String streamedData = "DataModel.data";
+	
 	private final double data[];
 	
-	public static DataModel create(Node xml) {
+	public static Model.Spec compile(Node xml) {
 		XmlTools.FormatType formatType = XmlTools.getAttributeValue(xml, XmlTools.XmlAttribute.format, XmlTools.FormatType.class);
-		double[] data = null;
+		if (formatType == XmlTools.FormatType.binary) {
+			return MappedDataModel.compile(xml);
+		}
+		double[] data = (double[]) xml.getUserData(streamedData);
 
-		switch (formatType) {
-		case xml:
-			data = XmlTools.getTypedListFromNode(xml, XmlNode.Data, XmlTools.XmlAttribute.value, double[].class);
-			return new DataModel(data);
-		case json:
-		default:
-			data = (new Gson()).fromJson(xml.getTextContent(), double[].class);
-			return new DataModel(data);
+		if (data == null) {
+			switch (formatType) {
+			case xml:
+				data = XmlTools.getTypedListFromNode(xml, XmlNode.Data, XmlTools.XmlAttribute.value, double[].class);
+				break;
+			case json:
+			default:
+				data = (new Gson()).fromJson(xml.getTextContent(), double[].class);
+				break;
+			}
 		}
+		
+		// the data is only read, so every model of the spec shares it
+		final double[] sharedData = data;
+		final double sharedMean = Computations.getMean(data);
+		return new Model.Spec() {
+			@Override
+			public IModel create() {
+				return new DataModel(sharedData, sharedMean);
+			}
+		};
 	}
 	
 	public DataModel(double[] data) {
+		this(data, Computations.getMean(data));
+	}
+	
+	private DataModel(double[] data, double mean) {
 		this.data = data;
-		mean = Computations.getMean(data);
+		this.mean = mean;
 	}
 	
 	private final double mean;
@@ -46,7 +70,7 @@ public class DataModel extends Model {
 	@Override
 	public double getValue() {
 		if (data.length > 0) {
-			return data[(int)RepastEssentials.GetTickCount() % data.length];
+			return data[TickContext.getCurrent().getTick() % data.length];
 		} else {
 			return 0;
 		}
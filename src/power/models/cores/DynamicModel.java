@@ -1,6 +1,11 @@
 package power.models.cores;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.HashMap;
 
 import power.tools.IAdjuster;
 import power.tools.IDescribable;
@@ -41,30 +46,77 @@ public abstract class DynamicModel extends Model {
 		}
 	}
 	
+	private static final MethodType accessorType = MethodType.methodType(double.class, Object.class);
+	private static final HashMap<Class<?>, HashMap<String, MethodHandle>> accessorCache = new HashMap<Class<?>, HashMap<String, MethodHandle>>();
+	
 	private final Property[] propertyList;
+	private MethodHandle[] accessorList;
 	
 	public DynamicModel(Property[] propertyList) {
 		this.propertyList = propertyList;
 		source = null;
 	}
 	
+	/**
+	 * Binds the properties to the getters of the source, so that evaluating the
+	 * model does not look the methods up again.
+	 */
+	@Override
+	public void setSource(Object source) {
+		super.setSource(source);
+		if (source == null || propertyList == null) {
+			accessorList = null;
+			return;
+		}
+		
+		accessorList = new MethodHandle[propertyList.length];
+		for (int index = 0; index < propertyList.length; index++) {
+			accessorList[index] = getAccessor(source.getClass(), propertyList[index].getProperty()).bindTo(source);
+		}
+	}
+	
+	private static synchronized MethodHandle getAccessor(Class<?> type, String property) {
+		HashMap<String, MethodHandle> accessors = accessorCache.get(type);
+		if (accessors == null) {
+			accessors = new HashMap<String, MethodHandle>();
+			accessorCache.put(type, accessors);
+		}
+		
+		MethodHandle accessor = accessors.get(property);
+		if (accessor == null) {
+			try {
+				Method method = type.getMethod(property);
+				accessor = MethodHandles.publicLookup().unreflect(method).asType(accessorType);
+			} catch (Exception e) { // poor error handling
+				System.err.println("DynamicModel: " + type.getName() + " has no public numeric property: " + property);
+				(new Exception()).printStackTrace();
+				System.exit(1);
+			}
+			accessors.put(property, accessor);
+		}
+		return accessor;
+	}
+	
 	protected double getPropertyValue(int propertyIndex) {
-		try {
-			if (source != null && propertyList != null && propertyIndex < propertyList.length) {
-				if (propertyList[propertyIndex].getAdjuster() != null) {
-					return propertyList[propertyIndex].getAdjuster().adjust((Double) source.getClass().getMethod(propertyList[propertyIndex].getProperty()).invoke(source));
-				} else {
-					return (Double) source.getClass().getMethod(propertyList[propertyIndex].getProperty()).invoke(source);
-				}
-			} else {
-				System.err.println("ExponentialFunctionModel: has not been initialized propertly.");
-				System.err.println("Source: " + source + ", propertyList: " + Arrays.toString(propertyList));
+		if (accessorList != null && propertyIndex < accessorList.length) {
+			double value;
+			try {
+				value = (double) accessorList[propertyIndex].invokeExact();
+			} catch (Throwable e) {
+				e.printStackTrace();
 				return Double.NaN;
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+			
+			if (propertyList[propertyIndex].getAdjuster() != null) {
+				return propertyList[propertyIndex].getAdjuster().adjust(value);
+			} else {
+				return value;
+			}
+		} else {
+			System.err.println("ExponentialFunctionModel: has not been initialized propertly.");
+			System.err.println("Source: " + source + ", propertyList: " + Arrays.toString(propertyList));
+			return Double.NaN;
 		}
-		return Double.NaN;
 	}
 	
 	@Override
@@ -18,27 +18,27 @@ public class ExponentialDynamicFunctionModel extends DynamicModel {
 	private final double d;
 	private final double e;
 	
-	public static ExponentialDynamicFunctionModel create(Node xml) {
+	public static Model.Spec compile(Node xml) {
 		if (xml == null) return null;
 		String value = null;
 		
 		value = XmlTools.getAttributeValue(XmlTools.getUptoOneNode(xml, XmlNode.A), XmlTools.XmlAttribute.value);
-		double a = value != null ? Double.parseDouble(value) : 0;
+		final double a = value != null ? Double.parseDouble(value) : 0;
 		
 		value = XmlTools.getAttributeValue(XmlTools.getUptoOneNode(xml, XmlNode.B), XmlTools.XmlAttribute.value);
-		double b = value != null ? Double.parseDouble(value) : 0;
+		final double b = value != null ? Double.parseDouble(value) : 0;
 		
 		value = XmlTools.getAttributeValue(XmlTools.getUptoOneNode(xml, XmlNode.C), XmlTools.XmlAttribute.value);
-		double c = value != null ? Double.parseDouble(value) : 0;
+		final double c = value != null ? Double.parseDouble(value) : 0;
 		
 		value = XmlTools.getAttributeValue(XmlTools.getUptoOneNode(xml, XmlNode.D), XmlTools.XmlAttribute.value);
-		double d = value != null ? Double.parseDouble(value) : 0;
+		final double d = value != null ? Double.parseDouble(value) : 0;
 		
 		value = XmlTools.getAttributeValue(XmlTools.getUptoOneNode(xml, XmlNode.E), XmlTools.XmlAttribute.value);
-		double e = value != null ? Double.parseDouble(value) : 0;
+		final double e = value != null ? Double.parseDouble(value) : 0;
 		
 		ArrayList<Node> nodeList = XmlTools.getAtLeastOneNode(XmlTools.getExactlyOneNode(xml, XmlNode.DynamicFunctionList), XmlNode.DynamicFunction);
-		Property[] propertyList = new Property[nodeList.size()];
+		final Property[] propertyList = new Property[nodeList.size()];
 		for (int index = 0; index < propertyList.length; index++)
 		{
 			String property = XmlTools.getAttributeValue(nodeList.get(index), XmlTools.XmlAttribute.value);
@@ -46,7 +46,12 @@ public class ExponentialDynamicFunctionModel extends DynamicModel {
 			propertyList[index] = new Property(property, adjuster);
 		}
 		
-		return new ExponentialDynamicFunctionModel(a, b, c, d, e, propertyList);
+		return new Model.Spec() {
+			@Override
+			public IModel create() {
+				return new ExponentialDynamicFunctionModel(a, b, c, d, e, propertyList);
+			}
+		};
 	}
 	
 	public ExponentialDynamicFunctionModel(double a, double b, double c, double d, double e, Property[] propertyList) {
@@ -0,0 +1,213 @@
+package power.models.cores;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+import org.w3c.dom.Node;
+
+import power.TickContext;
+import power.helpers.XmlTools;
+
+import com.google.gson.Gson;
+
+/**
+ * A DataModel whose series is a memory-mapped binary file, given as
+ * format="binary" and the file attribute. Every file is mapped once, so the
+ * generators and concurrent runs using it share one copy through the page
+ * cache instead of each holding a parsed array.
+ *
+ * The file is little-endian: a header of the magic number, the format
+ * version, the size of a value (8 for doubles, 4 for floats) and the number of
+ * values, followed by the values.
+ *
+ * Usage: MappedDataModel input.json output [float], converting a JSON array to
+ * such a file.
+ */
+public class MappedDataModel extends Model {
+
+	public static final int magic = 0x53544753; // "SGTS" in little-endian order
+	public static final int version = 1;
+	public static final int headerSize = 16;
+
+	private static final HashMap<String, Series> cache = new HashMap<String, Series>();
+
+	private final Series series;
+	// a view of its own, the mapping being shared
+	private final ByteBuffer buffer;
+
+	public static Model.Spec compile(Node xml) {
+		final Series series = map(XmlTools.getHardAttributeValue(xml, XmlTools.XmlAttribute.file));
+		return new Model.Spec() {
+			@Override
+			public IModel create() {
+				return new MappedDataModel(series);
+			}
+		};
+	}
+
+	private MappedDataModel(Series series) {
+		this.series = series;
+		this.buffer = series.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return the mapping of the file, mapped again when the file has changed
+	 */
+	private static synchronized Series map(String fileName) {
+		File file = new File(fileName);
+		String path = file.getAbsolutePath();
+		Series series = cache.get(path);
+		if (series == null || series.lastModified != file.lastModified()) {
+			series = new Series(fileName, file.lastModified());
+			cache.put(path, series);
+		}
+		return series;
+	}
+
+	@Override
+	public double getMeanSeedValue() {
+		return series.mean;
+	}
+
+	@Override
+	public double getValue() {
+		if (series.length > 0) {
+			return series.get(buffer, TickContext.getCurrent().getTick() % series.length);
+		} else {
+			return 0;
+		}
+	}
+
+	@Override
+	public String description(int nestingLevel) {
+		String tabbing = "";
+		if (nestingLevel > 0) tabbing = new String(new char[nestingLevel]).replace("\0", "\t");
+		String str = "MappedDataModel: {\n\t" +
+				tabbing + "source: " + source + "\n\t" +
+				tabbing + "file: " + series.fileName + "\n\t" +
+				tabbing + "length: " + series.length + "\n" +
+			tabbing + "}\n";
+		return str;
+	}
+
+	/**
+	 * A mapped file and what its header says about it.
+	 */
+	private static class Series {
+		public final String fileName;
+		public final long lastModified;
+		public final MappedByteBuffer buffer;
+		public final int valueSize;
+		public final int length;
+		public final double mean;
+
+		public Series(String fileName, long lastModified) {
+			this.fileName = fileName;
+			this.lastModified = lastModified;
+
+			MappedByteBuffer buffer = null;
+			try {
+				FileChannel channel = new FileInputStream(fileName).getChannel();
+				try {
+					buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				} finally {
+					// the mapping stays valid once the channel is closed
+					channel.close();
+				}
+			} catch (IOException e) {
+				System.err.println("Unable to map: " + fileName);
+				(new Exception()).printStackTrace();
+				System.exit(1);
+			}
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			this.buffer = buffer;
+
+			if (buffer.capacity() < headerSize || buffer.getInt(0) != magic || buffer.getInt(4) != version) {
+				System.err.println("Not a binary series of version " + version + ": " + fileName);
+				(new Exception()).printStackTrace();
+				System.exit(1);
+			}
+			this.valueSize = buffer.getInt(8);
+			this.length = buffer.getInt(12);
+			if ((valueSize != 8 && valueSize != 4) || length < 0 || headerSize + (long) valueSize * length != buffer.capacity()) {
+				System.err.println("Corrupt binary series of " + length + " values of " + valueSize + " bytes: " + fileName);
+				(new Exception()).printStackTrace();
+				System.exit(1);
+			}
+
+			double sum = 0;
+			for (int index = 0; index < length; index++) {
+				sum += get(buffer, index);
+			}
+			this.mean = sum / length;
+		}
+
+		public double get(ByteBuffer buffer, int index) {
+			if (valueSize == 8) {
+				return buffer.getDouble(headerSize + 8 * index);
+			} else {
+				return buffer.getFloat(headerSize + 4 * index);
+			}
+		}
+	}
+
+	/**
+	 * Writes the series as a binary file of doubles, or of floats to halve its
+	 * size.
+	 */
+	public static void write(String fileName, double[] data, boolean asFloat) throws IOException {
+		int valueSize = asFloat ? 4 : 8;
+		ByteBuffer buffer = ByteBuffer.allocate(headerSize + valueSize * data.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(magic);
+		buffer.putInt(version);
+		buffer.putInt(valueSize);
+		buffer.putInt(data.length);
+		for (double value : data) {
+			if (asFloat) {
+				buffer.putFloat((float) value);
+			} else {
+				buffer.putDouble(value);
+			}
+		}
+		buffer.flip();
+
+		FileChannel channel = new FileOutputStream(fileName).getChannel();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: MappedDataModel input.json output [float]");
+			System.exit(1);
+		}
+		try {
+			Reader reader = new InputStreamReader(new FileInputStream(args[0]), "UTF-8");
+			double[] data;
+			try {
+				data = (new Gson()).fromJson(reader, double[].class);
+			} finally {
+				reader.close();
+			}
+			write(args[1], data, args.length > 2 && args[2].equals("float"));
+		} catch (IOException e) {
+			System.err.println("Unable to convert: " + args[0]);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+	}
+}
@@ -10,19 +10,27 @@ public abstract class Model implements IModel {
 	
 	protected Object source;
 	
-	public static IModel create(Node xml) {
+	/**
+	 * A parsed model of the scenario. Models are bound to their source, so
+	 * every generator creates models of its own from the shared spec.
+	 */
+	public static abstract class Spec {
+		public abstract IModel create();
+	}
+	
+	public static Spec compile(Node xml) {
 		ModelType type = XmlTools.getAttributeValue(xml, XmlTools.XmlAttribute.type, ModelType.class);
 		
 		switch (type) {
 		case ConstantModel:
-			return ConstantModel.create(xml);
+			return ConstantModel.compile(xml);
 		case ExponentialDynamicFunctionModel:
-			return ExponentialDynamicFunctionModel.create(xml);
+			return ExponentialDynamicFunctionModel.compile(xml);
 		case SimpleModel:
-			return SimpleModel.create(xml);
+			return SimpleModel.compile(xml);
 		case DataModel:
 		default:
-			return DataModel.create(xml);
+			return DataModel.compile(xml);
 		}
 	}
 	
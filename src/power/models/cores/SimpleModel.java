@@ -11,9 +11,14 @@ public class SimpleModel extends Model {
 
 	private final IRandomDistribution distribution;
 
-	public static SimpleModel create(Node xml) {
-		IRandomDistribution distribution = RandomDistribution.create(XmlTools.getExactlyOneNode(xml, XmlNode.Distribution));
-		return new SimpleModel(distribution);
+	public static Model.Spec compile(Node xml) {
+		final RandomDistribution.Spec distribution = RandomDistribution.Spec.compile(XmlTools.getExactlyOneNode(xml, XmlNode.Distribution));
+		return new Model.Spec() {
+			@Override
+			public IModel create() {
+				return new SimpleModel(distribution.create());
+			}
+		};
 	}
 	
 	public SimpleModel(IRandomDistribution distribution) {
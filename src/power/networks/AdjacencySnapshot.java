@@ -0,0 +1,103 @@
+package power.networks;
+
+import power.components.Agent;
+
+import repast.simphony.space.graph.Network;
+
+/**
+ * A compressed-sparse-row copy of the adjacency of the agents in a network,
+ * indexed by agent id. The neighbors of the agent with id i are
+ * getNeighbor(getStart(i)) to getNeighbor(getEnd(i) - 1), in the order the
+ * network reports them.
+ *
+ * The snapshot does not follow the network; it has to be rebuilt when agents
+ * or edges are added or removed. Edge directions and weights are ignored.
+ */
+public class AdjacencySnapshot {
+
+	private final Agent[] agents;
+	private final int[] offsets;
+	private final int[] neighbors;
+
+	private AdjacencySnapshot(Agent[] agents, int[] offsets, int[] neighbors) {
+		this.agents = agents;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+	}
+
+	public static AdjacencySnapshot build(Network<Object> network, Agent[] agentArray) {
+		int capacity = 0;
+		for (Agent agent : agentArray) {
+			capacity = Math.max(capacity, agent.getId() + 1);
+		}
+
+		Agent[] agents = new Agent[capacity];
+		int[] degrees = new int[capacity];
+		for (Agent agent : agentArray) {
+			agents[agent.getId()] = agent;
+			if (network != null) {
+				degrees[agent.getId()] = network.getDegree(agent);
+			}
+		}
+
+		int[] offsets = new int[capacity + 1];
+		for (int id = 0; id < capacity; id++) {
+			offsets[id + 1] = offsets[id] + degrees[id];
+		}
+
+		int[] neighbors = new int[offsets[capacity]];
+		int size = 0;
+		for (int id = 0; id < capacity; id++) {
+			offsets[id] = size;
+			if (agents[id] != null && network != null) {
+				for (Object obj : network.getAdjacent(agents[id])) {
+					if (obj instanceof Agent) {
+						neighbors[size++] = ((Agent) obj).getId();
+					}
+				}
+			}
+		}
+		offsets[capacity] = size;
+		return new AdjacencySnapshot(agents, offsets, neighbors);
+	}
+
+	/**
+	 * @return one more than the largest agent id in the snapshot
+	 */
+	public int getCapacity() {
+		return agents.length;
+	}
+
+	/**
+	 * @return the number of neighbor positions, two for each edge
+	 */
+	public int getSize() {
+		return offsets[agents.length];
+	}
+
+	/**
+	 * @return the agent with the id or null if there is none
+	 */
+	public Agent getAgent(int id) {
+		return agents[id];
+	}
+
+	public int getStart(int id) {
+		return offsets[id];
+	}
+
+	public int getEnd(int id) {
+		return offsets[id + 1];
+	}
+
+	public int getDegree(int id) {
+		return offsets[id + 1] - offsets[id];
+	}
+
+	/**
+	 * @return the id of the neighbor at the position, from getStart to getEnd
+	 */
+	public int getNeighbor(int index) {
+		return neighbors[index];
+	}
+}
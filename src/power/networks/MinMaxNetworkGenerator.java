@@ -1,6 +1,14 @@
 package power.networks;
 
-import repast.simphony.random.RandomHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import power.SimulationInstance;
+import power.SimulationRandom;
+
+import cern.jet.random.Uniform;
+
 import repast.simphony.space.graph.Network;
 import repast.simphony.context.space.graph.NetworkGenerator;
 
@@ -39,16 +47,43 @@ public class MinMaxNetworkGenerator<T> implements NetworkGenerator<T> {
 		this.isConnected = isConnected;
 	}
 	
+	/**
+	 * Builds the edges over dense node indices, sampling partners from pools
+	 * of the nodes which are still below the minimum or maximum degree, and
+	 * adds them to the network at the end in the order they were drawn.
+	 */
 	@Override
 	public Network<T> createNetwork(Network<T> network) {
-		
-		int numberOfNodes = 0, numberOfMaxDegree = 0, numberOfSufficientDegree = 0;
+		// the network stream of the simulation, the same for every build
+		Uniform random = new Uniform(SimulationInstance.getCurrent().getRandom().getStream(SimulationRandom.Stream.Network).createEngine());
+		ArrayList<T> nodes = new ArrayList<T>();
+		for (T node : network.getNodes()) {
+			nodes.add(node);
+		}
+		int numberOfNodes = nodes.size();
+		Graph graph = new Graph(numberOfNodes);
+		if (network.numEdges() > 0) {
+			HashMap<T, Integer> indices = new HashMap<T, Integer>();
+			for (int index = 0; index < numberOfNodes; index++) {
+				indices.put(nodes.get(index), index);
+			}
+			for (int index = 0; index < numberOfNodes; index++) {
+				for (T neighbor : network.getAdjacent(nodes.get(index))) {
+					Integer other = indices.get(neighbor);
+					if (other != null && other > index) {
+						graph.link(index, other);
+					}
+				}
+			}
+		}
+
+		int first, second;
 		if (isConnected) {
-			T core = null;
+			int core = -1;
 			int counter = maxDegree;
-			for (T current : network.getNodes()) {
-				if(core != null) {
-					network.addEdge(core, current);
+			for (int current = 0; current < numberOfNodes; current++) {
+				if (core >= 0) {
+					graph.addEdge(core, current);
 				} else {
 					core = current;
 				}
@@ -57,116 +92,214 @@ public class MinMaxNetworkGenerator<T> implements NetworkGenerator<T> {
 					core = current;
 				}
 				counter--;
-				numberOfNodes++;
 			}
-			int degree; 
-			for (T node : network.getNodes()) {
-				degree = network.getDegree(node); 
-				if (degree >= maxDegree) {
-					numberOfMaxDegree++;
-					numberOfSufficientDegree++;
-				} else if (degree >= minDegree) {
-					numberOfSufficientDegree++;
-				}
+		}
+
+		// nodes below the minimum and below the maximum degree
+		NodePool deficient = new NodePool(numberOfNodes);
+		NodePool open = new NodePool(numberOfNodes);
+		for (int node = 0; node < numberOfNodes; node++) {
+			if (graph.getDegree(node) < minDegree) {
+				deficient.add(node);
 			}
-		} else {
-			for (T current : network.getNodes()) {
-				numberOfNodes ++;
+			if (graph.getDegree(node) < maxDegree) {
+				open.add(node);
 			}
 		}
-		
-		int index, target, numberOfOptions, firstDegree, secondDegree, numberOfUnaccountedNeighbors;
-		if (numberOfSufficientDegree < numberOfNodes - 1) {
-			for (T first : network.getNodes()) {
-				firstDegree = network.getDegree(first);
-				while(firstDegree < minDegree) {
-					numberOfUnaccountedNeighbors = 0;
-					for (T neighbor : network.getAdjacent(first)) {
-						if (network.getDegree(neighbor) < minDegree) {
-							numberOfUnaccountedNeighbors++;
-						}
-					}
-					numberOfOptions = numberOfNodes - numberOfSufficientDegree - numberOfUnaccountedNeighbors - 1;
-					if (numberOfOptions > 0) {
-						target = RandomHelper.nextIntFromTo(0, numberOfOptions - 1);
-						index = 0;
-						for (T second : network.getNodes()) {
-							if (first != second) {
-								secondDegree = network.getDegree(second);
-								if (secondDegree < minDegree && !network.isAdjacent(first, second)) {
-									if (index < target) {
-										index++;
-									} else {
-										network.addEdge(first, second);
-										firstDegree++;
-										if (firstDegree == maxDegree) {
-											numberOfMaxDegree++;
-											numberOfSufficientDegree++;
-										} else if (firstDegree == minDegree) {
-											numberOfSufficientDegree++;
-										}
-										secondDegree++;
-										if (secondDegree == maxDegree) {
-											numberOfMaxDegree++;
-											numberOfSufficientDegree++;
-										} else if (secondDegree == minDegree) {
-											numberOfSufficientDegree++;
-										}
-										break;
-									}
-								}
-							}
-						}
-					} else {
+
+		if (numberOfNodes - deficient.size() < numberOfNodes - 1) {
+			for (first = 0; first < numberOfNodes; first++) {
+				while (graph.getDegree(first) < minDegree) {
+					second = pickPartner(random, graph, deficient, first);
+					if (second < 0)
 						break;
-					}
+					graph.addEdge(first, second);
+					update(graph, deficient, open, first);
+					update(graph, deficient, open, second);
 				}
 			}
 		}
-		
-		if (numberOfMaxDegree < numberOfNodes - 1) {
+
+		if (numberOfNodes - open.size() < numberOfNodes - 1) {
 			int numberOfRounds;
-			for (T first : network.getNodes()) {
-				firstDegree = network.getDegree(first);
-				numberOfRounds = RandomHelper.nextIntFromTo(0, maxNumberOfRounds);
-				for (int round = 0; round < numberOfRounds && firstDegree < maxDegree; round++) {
-					numberOfUnaccountedNeighbors = 0;
-					for (T neighbor : network.getAdjacent(first)) {
-						if (network.getDegree(neighbor) < maxDegree) {
-							numberOfUnaccountedNeighbors++;
-						}
-					}
-					numberOfOptions = numberOfNodes - numberOfMaxDegree - numberOfUnaccountedNeighbors - 1;
-					if (numberOfOptions > 0) {
-						target = RandomHelper.nextIntFromTo(0, numberOfOptions - 1);
-						index = 0;
-						for (T second : network.getNodes()) {
-							if (first != second) {
-								secondDegree = network.getDegree(second);								
-								if(secondDegree < maxDegree && !network.isAdjacent(first, second)) {							
-									if (index < target) {
-										index++;
-									} else {
-										network.addEdge(first, second);
-										firstDegree++;
-										if (firstDegree == maxDegree) {
-											numberOfMaxDegree++;
-										}
-										secondDegree++;
-										if (secondDegree == maxDegree) {
-											numberOfMaxDegree++;
-										}
-										break;
-									}
-								}
-							}
-						}
-					} else {
+			for (first = 0; first < numberOfNodes; first++) {
+				numberOfRounds = random.nextIntFromTo(0, maxNumberOfRounds);
+				for (int round = 0; round < numberOfRounds && graph.getDegree(first) < maxDegree; round++) {
+					second = pickPartner(random, graph, open, first);
+					if (second < 0)
 						break;
-					}
+					graph.addEdge(first, second);
+					update(graph, deficient, open, first);
+					update(graph, deficient, open, second);
 				}
 			}
 		}
+
+		for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+			network.addEdge(nodes.get(graph.getSource(edge)), nodes.get(graph.getTarget(edge)));
+		}
 		return network;
 	}
+
+	private void update(Graph graph, NodePool deficient, NodePool open, int node) {
+		if (graph.getDegree(node) >= minDegree) {
+			deficient.remove(node);
+		}
+		if (graph.getDegree(node) >= maxDegree) {
+			open.remove(node);
+		}
+	}
+
+	/**
+	 * @return a node of the pool picked uniformly among those which are neither
+	 *         the node nor adjacent to it, or -1 if there is none
+	 */
+	private static int pickPartner(Uniform random, Graph graph, NodePool pool, int node) {
+		int numberOfExcluded = pool.contains(node) ? 1 : 0;
+		for (int index = 0; index < graph.getDegree(node); index++) {
+			if (pool.contains(graph.getNeighbor(node, index))) {
+				numberOfExcluded++;
+			}
+		}
+		int numberOfOptions = pool.size() - numberOfExcluded;
+		if (numberOfOptions <= 0)
+			return -1;
+
+		if (2 * numberOfOptions >= pool.size()) {
+			// at least half of the draws are accepted
+			while (true) {
+				int candidate = pool.get(random.nextIntFromTo(0, pool.size() - 1));
+				if (candidate != node && !graph.isAdjacent(node, candidate))
+					return candidate;
+			}
+		}
+
+		int target = random.nextIntFromTo(0, numberOfOptions - 1);
+		for (int index = 0; index < pool.size(); index++) {
+			int candidate = pool.get(index);
+			if (candidate != node && !graph.isAdjacent(node, candidate)) {
+				if (target == 0)
+					return candidate;
+				target--;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adjacency lists and the list of added edges over node indices.
+	 */
+	private static class Graph {
+		private final int[][] adjacent;
+		private final int[] degrees;
+		private int[] sources = new int[16];
+		private int[] targets = new int[16];
+		private int edgeCount;
+
+		public Graph(int numberOfNodes) {
+			adjacent = new int[numberOfNodes][];
+			degrees = new int[numberOfNodes];
+		}
+
+		public void addEdge(int source, int target) {
+			if (edgeCount == sources.length) {
+				sources = Arrays.copyOf(sources, 2 * edgeCount);
+				targets = Arrays.copyOf(targets, 2 * edgeCount);
+			}
+			sources[edgeCount] = source;
+			targets[edgeCount] = target;
+			edgeCount++;
+			link(source, target);
+		}
+
+		/**
+		 * Adds an existing edge of the network without adding it again.
+		 */
+		public void link(int first, int second) {
+			append(first, second);
+			append(second, first);
+		}
+
+		private void append(int node, int neighbor) {
+			if (adjacent[node] == null) {
+				adjacent[node] = new int[4];
+			} else if (degrees[node] == adjacent[node].length) {
+				adjacent[node] = Arrays.copyOf(adjacent[node], 2 * degrees[node]);
+			}
+			adjacent[node][degrees[node]++] = neighbor;
+		}
+
+		public boolean isAdjacent(int node, int other) {
+			for (int index = 0; index < degrees[node]; index++) {
+				if (adjacent[node][index] == other)
+					return true;
+			}
+			return false;
+		}
+
+		public int getDegree(int node) {
+			return degrees[node];
+		}
+
+		public int getNeighbor(int node, int index) {
+			return adjacent[node][index];
+		}
+
+		public int getEdgeCount() {
+			return edgeCount;
+		}
+
+		public int getSource(int edge) {
+			return sources[edge];
+		}
+
+		public int getTarget(int edge) {
+			return targets[edge];
+		}
+	}
+
+	/**
+	 * A set of node indices with constant time add, remove and access by
+	 * position; removal moves the last member into the freed position.
+	 */
+	private static class NodePool {
+		private final int[] members;
+		private final int[] positions;
+		private int size;
+
+		public NodePool(int numberOfNodes) {
+			members = new int[numberOfNodes];
+			positions = new int[numberOfNodes];
+			Arrays.fill(positions, -1);
+		}
+
+		public void add(int node) {
+			if (positions[node] >= 0)
+				return;
+			positions[node] = size;
+			members[size++] = node;
+		}
+
+		public void remove(int node) {
+			int position = positions[node];
+			if (position < 0)
+				return;
+			int last = members[--size];
+			members[position] = last;
+			positions[last] = position;
+			positions[node] = -1;
+		}
+
+		public boolean contains(int node) {
+			return positions[node] >= 0;
+		}
+
+		public int get(int position) {
+			return members[position];
+		}
+
+		public int size() {
+			return size;
+		}
+	}
 }
@@ -0,0 +1,133 @@
+package power.networks;
+
+import java.util.Arrays;
+
+import power.components.Agent;
+
+import repast.simphony.space.graph.Network;
+import repast.simphony.space.graph.RepastEdge;
+
+/**
+ * Records the direction and weight of the latest trade over each edge of an
+ * AdjacencySnapshot in primitive arrays indexed by edge. The Repast edges are
+ * only brought in line by sync(), so trading does not change the network
+ * while the display is not watching it.
+ */
+public class TradeFlowOverlay {
+
+	private final AdjacencySnapshot adjacency;
+
+	// edge of each position of the adjacency
+	private final int[] edgeOf;
+
+	// latest trade over each edge
+	private final int[] sources;
+	private final int[] targets;
+	private final double[] weights;
+
+	// edges traded over since the last sync
+	private final boolean[] dirty;
+	private int[] dirtyEdges = new int[16];
+	private int dirtyCount;
+
+	public TradeFlowOverlay(AdjacencySnapshot adjacency) {
+		this.adjacency = adjacency;
+
+		edgeOf = new int[adjacency.getSize()];
+		Arrays.fill(edgeOf, -1);
+
+		// both positions of an edge share its index
+		int edgeCount = 0;
+		for (int id = 0; id < adjacency.getCapacity(); id++) {
+			for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+				if (edgeOf[index] >= 0)
+					continue;
+				int neighbor = adjacency.getNeighbor(index);
+				edgeOf[index] = edgeCount;
+				for (int other = adjacency.getStart(neighbor); other < adjacency.getEnd(neighbor); other++) {
+					if (other != index && edgeOf[other] < 0 && adjacency.getNeighbor(other) == id) {
+						edgeOf[other] = edgeCount;
+						break;
+					}
+				}
+				edgeCount++;
+			}
+		}
+
+		sources = new int[edgeCount];
+		targets = new int[edgeCount];
+		weights = new double[edgeCount];
+		dirty = new boolean[edgeCount];
+	}
+
+	/**
+	 * Records that the seller sold the power to the buyer over their edge.
+	 */
+	public void record(Agent seller, Agent buyer, double power) {
+		int edge = getEdge(seller.getId(), buyer.getId());
+		if (edge < 0)
+			return;
+
+		sources[edge] = seller.getId();
+		targets[edge] = buyer.getId();
+		weights[edge] = power;
+		if (!dirty[edge]) {
+			dirty[edge] = true;
+			if (dirtyCount == dirtyEdges.length) {
+				dirtyEdges = Arrays.copyOf(dirtyEdges, 2 * dirtyEdges.length);
+			}
+			dirtyEdges[dirtyCount++] = edge;
+		}
+	}
+
+	/**
+	 * Points each edge traded over since the last sync from the seller to the
+	 * buyer and sets its weight to the power of the latest trade.
+	 */
+	public void sync(Network<Object> network) {
+		for (int index = 0; index < dirtyCount; index++) {
+			int edge = dirtyEdges[index];
+			dirty[edge] = false;
+
+			Agent source = adjacency.getAgent(sources[edge]);
+			Agent target = adjacency.getAgent(targets[edge]);
+			RepastEdge<Object> repastEdge = network.getEdge(target, source);
+			if (repastEdge != null) {
+				network.removeEdge(repastEdge);
+				network.addEdge(source, target);
+			}
+			repastEdge = network.getEdge(source, target);
+			if (repastEdge != null) {
+				repastEdge.setWeight(weights[edge]);
+			}
+		}
+		dirtyCount = 0;
+	}
+
+	/**
+	 * @return the edge between the agents or -1 if they are not adjacent
+	 */
+	public int getEdge(int id, int neighbor) {
+		for (int index = adjacency.getStart(id); index < adjacency.getEnd(id); index++) {
+			if (adjacency.getNeighbor(index) == neighbor)
+				return edgeOf[index];
+		}
+		return -1;
+	}
+
+	public int getEdgeCount() {
+		return weights.length;
+	}
+
+	public int getSource(int edge) {
+		return sources[edge];
+	}
+
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	public double getWeight(int edge) {
+		return weights[edge];
+	}
+}
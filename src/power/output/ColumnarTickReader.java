@@ -0,0 +1,128 @@
+package power.output;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Exports a file of the ColumnarTickWriter to CSV, one row per tick.
+ *
+ * Usage: ColumnarTickReader input [output.csv], printing to the standard
+ * output when no output file is given.
+ */
+public class ColumnarTickReader {
+
+	private final FileChannel channel;
+	private final String[] names;
+	private final int blockSize;
+
+	public ColumnarTickReader(FileChannel channel) throws IOException {
+		this.channel = channel;
+
+		ByteBuffer header = read(16);
+		if (header.getInt() != ColumnarTickWriter.magic) {
+			throw new IOException("Not a tick output file");
+		}
+		int version = header.getInt();
+		if (version != ColumnarTickWriter.version) {
+			throw new IOException("Unsupported version: " + version);
+		}
+		blockSize = header.getInt();
+		names = new String[header.getInt()];
+		for (int index = 0; index < names.length; index++) {
+			byte[] name = new byte[read(2).getShort() & 0xffff];
+			read(name.length).get(name);
+			names[index] = new String(name, ColumnarTickWriter.charset);
+		}
+	}
+
+	public String[] getNames() {
+		return names;
+	}
+
+	/**
+	 * @return the column-major values of the next block or null at the end of
+	 *         the file
+	 */
+	public double[][] readBlock() throws IOException {
+		if (channel.position() >= channel.size())
+			return null;
+		int rows = read(4).getInt();
+		if (rows < 0 || rows > blockSize) {
+			throw new IOException("Corrupt block of " + rows + " ticks");
+		}
+		ByteBuffer buffer = read(8 * rows * names.length);
+		double[][] block = new double[names.length][rows];
+		for (int column = 0; column < names.length; column++) {
+			for (int row = 0; row < rows; row++) {
+				block[column][row] = buffer.getDouble();
+			}
+		}
+		return block;
+	}
+
+	private ByteBuffer read(int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	public void exportCsv(Writer writer) throws IOException {
+		for (int column = 0; column < names.length; column++) {
+			if (column > 0)
+				writer.write(',');
+			writer.write(names[column]);
+		}
+		writer.write('\n');
+
+		double[][] block;
+		while ((block = readBlock()) != null) {
+			for (int row = 0; row < block[0].length; row++) {
+				writer.write(Integer.toString((int) block[0][row]));
+				for (int column = 1; column < names.length; column++) {
+					writer.write(',');
+					writer.write(Double.toString(block[column][row]));
+				}
+				writer.write('\n');
+			}
+		}
+		writer.flush();
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: ColumnarTickReader input [output.csv]");
+			System.exit(1);
+		}
+		try {
+			FileChannel channel = new FileInputStream(new File(args[0])).getChannel();
+			Writer writer;
+			if (args.length > 1) {
+				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), ColumnarTickWriter.charset));
+			} else {
+				writer = new BufferedWriter(new OutputStreamWriter(System.out, ColumnarTickWriter.charset));
+			}
+			try {
+				new ColumnarTickReader(channel).exportCsv(writer);
+			} finally {
+				channel.close();
+				writer.close();
+			}
+		} catch (IOException e) {
+			System.err.println("Unable to export: " + args[0]);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+	}
+}
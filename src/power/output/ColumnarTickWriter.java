@@ -0,0 +1,367 @@
+package power.output;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import power.components.Grid;
+import power.components.generators.AgentGenerator;
+
+/**
+ * Writes the metrics of every tick as binary columns through a FileChannel.
+ *
+ * The file starts with a header: the magic number, the format version, the
+ * number of ticks per block, the number of columns and the name of each
+ * column as a short length followed by its UTF-8 bytes. The first column is
+ * the tick. It is followed by blocks of up to blockSize ticks, each holding
+ * the number of ticks in the block and then the values of every column for
+ * those ticks, one column after the other. Only the last block may be short.
+ * ColumnarTickReader exports such a file to CSV.
+ *
+ * The simulation thread only copies the values into one of a small ring of
+ * preallocated blocks; full blocks are handed to a writer thread through a
+ * bounded queue. append() only blocks when every block of the ring is still
+ * waiting to be written.
+ */
+public class ColumnarTickWriter {
+
+	public static final int magic = 0x53475443; // "SGTC"
+	public static final int version = 1;
+	public static final Charset charset = Charset.forName("UTF-8");
+
+	private static final int defaultBlockSize = 1024;
+	private static final int ringSize = 4;
+
+	private final String fileName;
+	private final FileChannel channel;
+	private final ITickColumn[] columns;
+	private final int blockSize;
+
+	// blocks ready to be filled and blocks waiting to be written
+	private final ArrayBlockingQueue<Block> freeBlocks;
+	private final ArrayBlockingQueue<Block> filledBlocks;
+	private final Thread writerThread;
+	private Block block;
+	private boolean closed;
+
+	public ColumnarTickWriter(String fileName, ArrayList<ITickColumn> columns, int blockSize) {
+		this.fileName = fileName;
+		this.columns = columns.toArray(new ITickColumn[columns.size()]);
+		this.blockSize = blockSize;
+		this.freeBlocks = new ArrayBlockingQueue<Block>(ringSize);
+		this.filledBlocks = new ArrayBlockingQueue<Block>(ringSize + 1);
+		for (int index = 0; index < ringSize; index++) {
+			freeBlocks.add(new Block(columns.size() + 1, blockSize));
+		}
+
+		FileChannel channel = null;
+		try {
+			channel = new FileOutputStream(new File(fileName)).getChannel();
+			writeHeader(channel);
+		} catch (IOException e) {
+			System.err.println("Unable to write: " + fileName);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+		this.channel = channel;
+
+		this.block = takeFreeBlock();
+		this.writerThread = new Thread("ColumnarTickWriter") {
+			@Override
+			public void run() {
+				writeBlocks();
+			}
+		};
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * @return a writer of the main Grid and AgentGenerator metrics
+	 */
+	public static ColumnarTickWriter create(String fileName, final Grid grid, Collection<AgentGenerator> agentGenerators) {
+		ArrayList<ITickColumn> columns = new ArrayList<ITickColumn>();
+		columns.add(new Column("Grid.CurrentDemand") {
+			@Override
+			public double getValue() {
+				return grid.getCurrentDemand();
+			}
+		});
+		columns.add(new Column("Grid.LoadFactor") {
+			@Override
+			public double getValue() {
+				return grid.getLoadFactor();
+			}
+		});
+		columns.add(new Column("Grid.MeanLoadFactor") {
+			@Override
+			public double getValue() {
+				return grid.getMeanLoadFactor();
+			}
+		});
+		columns.add(new Column("Grid.DemandSTD") {
+			@Override
+			public double getValue() {
+				return grid.getDemandSTD();
+			}
+		});
+		columns.add(new Column("Grid.CurrentBasePrice") {
+			@Override
+			public double getValue() {
+				return grid.getCurrentBasePrice();
+			}
+		});
+		columns.add(new Column("Grid.MeanBasePrice") {
+			@Override
+			public double getValue() {
+				return grid.getMeanBasePrice();
+			}
+		});
+		columns.add(new Column("Grid.CurrentBoughtPower") {
+			@Override
+			public double getValue() {
+				return grid.getCurrentBoughtPower();
+			}
+		});
+		columns.add(new Column("Grid.CurrentSoldPower") {
+			@Override
+			public double getValue() {
+				return grid.getCurrentSoldPower();
+			}
+		});
+		columns.add(new Column("Grid.BlackoutAreaSize") {
+			@Override
+			public double getValue() {
+				return grid.getBlackoutAreaSize();
+			}
+		});
+
+		for (final AgentGenerator agentGenerator : agentGenerators) {
+			String prefix = agentGenerator.getName() + ".";
+			columns.add(new Column(prefix + "CurrentDemand") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getCurrentDemand();
+				}
+			});
+			columns.add(new Column(prefix + "MeanDemand") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getMeanDemand();
+				}
+			});
+			columns.add(new Column(prefix + "Deficit") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getDeficit();
+				}
+			});
+			columns.add(new Column(prefix + "StoredPower") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getStoredPower();
+				}
+			});
+			columns.add(new Column(prefix + "LoadFactor") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getLoadFactor();
+				}
+			});
+			columns.add(new Column(prefix + "DemandSTD") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getDemandSTD();
+				}
+			});
+			columns.add(new Column(prefix + "CurrentPowerBoughtFromNeighbors") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getCurrentPowerBoughtFromNeighbors();
+				}
+			});
+			columns.add(new Column(prefix + "CurrentPowerSoldToNeighbors") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getCurrentPowerSoldToNeighbors();
+				}
+			});
+			columns.add(new Column(prefix + "CurrentProfit") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getCurrentProfit();
+				}
+			});
+			columns.add(new Column(prefix + "CurrentSimpleProfit") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getCurrentSimpleProfit();
+				}
+			});
+			columns.add(new Column(prefix + "CurrentSmartProfit") {
+				@Override
+				public double getValue() {
+					return agentGenerator.getCurrentSmartProfit();
+				}
+			});
+		}
+		return new ColumnarTickWriter(fileName, columns, defaultBlockSize);
+	}
+
+	private void writeHeader(FileChannel channel) throws IOException {
+		ArrayList<byte[]> names = new ArrayList<byte[]>();
+		int size = 16;
+		names.add("Tick".getBytes(charset));
+		for (ITickColumn column : columns) {
+			names.add(column.getName().getBytes(charset));
+		}
+		for (byte[] name : names) {
+			size += 2 + name.length;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(size);
+		header.putInt(magic);
+		header.putInt(version);
+		header.putInt(blockSize);
+		header.putInt(names.size());
+		for (byte[] name : names) {
+			header.putShort((short) name.length);
+			header.put(name);
+		}
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+	}
+
+	/**
+	 * Copies every column for the tick, handing the block to the writer thread
+	 * once it is full.
+	 */
+	public void append(int tick) {
+		double[][] values = block.values;
+		int row = block.rows;
+		values[0][row] = tick;
+		for (int index = 0; index < columns.length; index++) {
+			values[index + 1][row] = columns[index].getValue();
+		}
+		block.rows++;
+		if (block.rows == blockSize) {
+			handOff(block);
+			block = takeFreeBlock();
+		}
+	}
+
+	/**
+	 * Hands over the last, possibly short, block and waits until the writer
+	 * thread has written it and closed the file.
+	 */
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (block.rows > 0) {
+			handOff(block);
+		}
+		handOff(Block.end);
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Block takeFreeBlock() {
+		try {
+			return freeBlocks.take();
+		} catch (InterruptedException e) {
+			System.err.println("Interrupted while waiting to write: " + fileName);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	private void handOff(Block block) {
+		try {
+			filledBlocks.put(block);
+		} catch (InterruptedException e) {
+			System.err.println("Interrupted while waiting to write: " + fileName);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Writer thread
+	 */
+	private void writeBlocks() {
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 8 * (columns.length + 1) * blockSize);
+		try {
+			while (true) {
+				Block block = filledBlocks.take();
+				if (block == Block.end)
+					break;
+
+				buffer.clear();
+				buffer.putInt(block.rows);
+				for (int column = 0; column < block.values.length; column++) {
+					double[] values = block.values[column];
+					for (int row = 0; row < block.rows; row++) {
+						buffer.putDouble(values[row]);
+					}
+				}
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				block.rows = 0;
+				freeBlocks.put(block);
+			}
+			channel.close();
+		} catch (IOException e) {
+			System.err.println("Unable to write: " + fileName);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.err.println("Interrupted while writing: " + fileName);
+			(new Exception()).printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Column-major values of up to blockSize ticks, the tick first.
+	 */
+	private static class Block {
+		public static final Block end = new Block(0, 0);
+
+		public final double[][] values;
+		public int rows;
+
+		public Block(int columns, int blockSize) {
+			values = new double[columns][blockSize];
+		}
+	}
+
+	// end of writer thread
+
+	private static abstract class Column implements ITickColumn {
+		private final String name;
+
+		public Column(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+}
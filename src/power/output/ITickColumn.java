@@ -0,0 +1,10 @@
+package power.output;
+
+/**
+ * A metric written once per tick by the ColumnarTickWriter.
+ */
+public interface ITickColumn {
+	public String getName();
+
+	public double getValue();
+}
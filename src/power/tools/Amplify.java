@@ -2,6 +2,7 @@ package power.tools;
 
 import org.w3c.dom.Node;
 
+import power.SimulationInstance;
 import power.helpers.XmlTools;
 
 public class Amplify implements IAdjuster {
@@ -9,16 +10,11 @@ public class Amplify implements IAdjuster {
 		Factor
 	};
 
-	private static Amplify handyInstance;
-
+	/**
+	 * @return the amplifier of the current simulation, set to the factor
+	 */
 	public static Amplify getHandyInstance(double factor) {
-		if (handyInstance == null) {
-			handyInstance = new Amplify(factor);
-			return handyInstance;
-		} else {
-			handyInstance.setFactor(factor);
-			return handyInstance;
-		}
+		return SimulationInstance.getCurrent().getAmplify(factor);
 	}
 
 	private double factor;
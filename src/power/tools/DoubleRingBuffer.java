@@ -0,0 +1,79 @@
+package power.tools;
+
+/**
+ * A CycleQueue of unboxed doubles. Adding to a buffer which is not full
+ * allocates nothing.
+ */
+public class DoubleRingBuffer {
+	private int start = 0;
+	private int end = 0;
+	private int size = 0;
+	private double[] list;
+
+	public DoubleRingBuffer() {
+		this(16);
+	}
+
+	public DoubleRingBuffer(int capacity) {
+		list = new double[capacity > 0 ? capacity : 1];
+	}
+
+	public void add(double element) {
+		if (size == list.length) {
+			increaseCapacity();
+		}
+		list[end] = element;
+		end++;
+		if (end == list.length) {
+			end = 0;
+		}
+		size++;
+	}
+
+	public double remove() {
+		if (size > 0) {
+			double element = list[start];
+			start++;
+			if (start == list.length) {
+				start = 0;
+			}
+			size--;
+			return element;
+		} else {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	public double get(int index) {
+		if (index >= 0 && index < size) {
+			int position = start + index;
+			if (position >= list.length) {
+				position -= list.length;
+			}
+			return list[position];
+		} else {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		start = 0;
+		end = 0;
+		size = 0;
+	}
+
+	private void increaseCapacity() {
+		double[] newList = new double[2 * list.length];
+		for (int index = 0; index < size; index++) {
+			newList[index] = get(index);
+		}
+		list = newList;
+
+		end = size;
+		start = 0;
+	}
+}
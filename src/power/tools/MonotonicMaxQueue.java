@@ -0,0 +1,85 @@
+package power.tools;
+
+/**
+ * Keeps the maximum of the most recently added values. Values are numbered in
+ * the order they are added; the queue only holds the values which are larger
+ * than everything added after them, so the front is always the maximum and
+ * every value is added and dropped at most once.
+ */
+public class MonotonicMaxQueue {
+	private long[] sequences;
+	private double[] values;
+	private int start = 0;
+	private int size = 0;
+	private long count = 0;
+
+	public MonotonicMaxQueue() {
+		this(16);
+	}
+
+	public MonotonicMaxQueue(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		sequences = new long[capacity];
+		values = new double[capacity];
+	}
+
+	public void add(double value) {
+		while (size > 0 && values[position(size - 1)] <= value) {
+			size--;
+		}
+		if (size == values.length) {
+			increaseCapacity();
+		}
+		int position = position(size);
+		sequences[position] = count++;
+		values[position] = value;
+		size++;
+	}
+
+	/**
+	 * Drops the values which are not among the last <code>recent</code> added.
+	 */
+	public void retain(int recent) {
+		long first = count - recent;
+		while (size > 0 && sequences[start] < first) {
+			start = position(1);
+			size--;
+		}
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public double getMax() {
+		return values[start];
+	}
+
+	public void clear() {
+		start = 0;
+		size = 0;
+		count = 0;
+	}
+
+	private int position(int index) {
+		int position = start + index;
+		if (position >= values.length) {
+			position -= values.length;
+		}
+		return position;
+	}
+
+	private void increaseCapacity() {
+		long[] newSequences = new long[2 * values.length];
+		double[] newValues = new double[2 * values.length];
+		for (int index = 0; index < size; index++) {
+			newSequences[index] = sequences[position(index)];
+			newValues[index] = values[position(index)];
+		}
+		sequences = newSequences;
+		values = newValues;
+		start = 0;
+	}
+}